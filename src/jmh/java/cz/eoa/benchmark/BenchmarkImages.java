@@ -0,0 +1,29 @@
+package cz.eoa.benchmark;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Access to the images bundled in {@code data/}. The directory can be overridden by the {@code benchmark.data}
+ * system property when the benchmarks are not run from the project root.
+ *
+ * @author Ondřej Kratochvíl
+ */
+final class BenchmarkImages {
+
+    private static final String DATA_DIR = System.getProperty("benchmark.data", "data");
+
+    private BenchmarkImages() {
+    }
+
+    static BufferedImage load(String fileName) throws IOException {
+        File file = new File(DATA_DIR, fileName);
+        BufferedImage image = ImageIO.read(file);
+        if (image == null) {
+            throw new IOException("Unable to read image " + file.getAbsolutePath());
+        }
+        return image;
+    }
+}
@@ -0,0 +1,148 @@
+package cz.eoa.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Entry point of the benchmark jar. Accepts the usual JMH command line, always attaches the GC profiler so that
+ * the allocation rate is reported next to the throughput, and optionally gates regressions against a baseline.
+ * <p>
+ * Produce the baseline with {@code -rf csv -rff baseline.csv}, then run with
+ * {@code -Dbenchmark.baseline=baseline.csv} (and optionally {@code -Dbenchmark.tolerance=0.1}). The process exits
+ * with status 2 if any benchmark lost more than the tolerance of its throughput, or allocates that much more
+ * per operation.
+ *
+ * @author Ondřej Kratochvíl
+ */
+public final class BenchmarkRunner {
+
+    private static final String ALLOCATION_PER_OPERATION = "gc.alloc.rate.norm";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        Options options = new OptionsBuilder()
+                .parent(commandLineOptions)
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        String baseline = System.getProperty("benchmark.baseline");
+        if (baseline != null) {
+            double tolerance = Double.parseDouble(System.getProperty("benchmark.tolerance", "0.1"));
+            List<String> regressions = findRegressions(readBaseline(baseline), results, tolerance);
+            regressions.forEach(System.err::println);
+            if (!regressions.isEmpty()) {
+                System.exit(2);
+            }
+            System.out.println("No regressions against " + baseline);
+        }
+    }
+
+    private static List<String> findRegressions(Map<String, Double> baseline, Collection<RunResult> results,
+                                                double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        for (RunResult result : results) {
+            String key = key(result);
+            Double baselineScore = baseline.get(key);
+            double score = result.getPrimaryResult().getScore();
+            if (baselineScore != null && score < baselineScore * (1 - tolerance)) {
+                regressions.add(String.format("Throughput regression %s: %.3f -> %.3f", key, baselineScore, score));
+            }
+            Result allocation = result.getSecondaryResults().get(ALLOCATION_PER_OPERATION);
+            Double baselineAllocation = baseline.get(key + ":" + ALLOCATION_PER_OPERATION);
+            // a few bytes of noise are common for allocation-free code
+            if (allocation != null && baselineAllocation != null
+                    && allocation.getScore() > baselineAllocation * (1 + tolerance) + 16) {
+                regressions.add(String.format("Allocation regression %s: %.1f -> %.1f B/op", key,
+                        baselineAllocation, allocation.getScore()));
+            }
+        }
+        return regressions;
+    }
+
+    private static String key(RunResult result) {
+        StringBuilder key = new StringBuilder(result.getParams().getBenchmark());
+        for (String param : new TreeSet<>(result.getParams().getParamsKeys())) {
+            key.append(' ').append(param).append('=').append(result.getParams().getParam(param));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Read JMH CSV results into scores keyed the same way as {@link #key(RunResult)}, with secondary results
+     * suffixed by their label.
+     */
+    private static Map<String, Double> readBaseline(String fileName) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(fileName), StandardCharsets.UTF_8);
+        List<String> header = parseCsvLine(lines.get(0));
+        int scoreColumn = header.indexOf("Score");
+        SortedMap<String, Integer> paramColumns = new TreeMap<>();
+        for (int i = 0; i < header.size(); ++i) {
+            if (header.get(i).startsWith("Param: ")) {
+                paramColumns.put(header.get(i).substring("Param: ".length()), i);
+            }
+        }
+        Map<String, Double> scores = new HashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            List<String> values = parseCsvLine(line);
+            String benchmark = values.get(0);
+            String label = null;
+            int labelStart = benchmark.indexOf(':');
+            if (labelStart >= 0) {
+                // secondary results are named "benchmark:label", JMH may prefix the label with a middle dot
+                label = benchmark.substring(labelStart + 1).replace("·", "");
+                benchmark = benchmark.substring(0, labelStart);
+            }
+            StringBuilder key = new StringBuilder(benchmark);
+            for (Map.Entry<String, Integer> param : paramColumns.entrySet()) {
+                String value = values.get(param.getValue());
+                if (!value.isEmpty()) {
+                    key.append(' ').append(param.getKey()).append('=').append(value);
+                }
+            }
+            if (label != null) {
+                key.append(':').append(label);
+            }
+            scores.put(key.toString(), Double.parseDouble(values.get(scoreColumn)));
+        }
+        return scores;
+    }
+
+    private static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (char c : line.toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
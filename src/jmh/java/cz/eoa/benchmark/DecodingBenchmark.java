@@ -0,0 +1,81 @@
+package cz.eoa.benchmark;
+
+import cz.eoa.impl.ImageIndividual;
+import cz.eoa.impl.PolygonGenome;
+import cz.eoa.impl.function.ImageFitness;
+import cz.eoa.impl.function.PolygonPopulationInitialization;
+import cz.eoa.impl.function.PolygonsToImageDecoder;
+import cz.eoa.impl.function.RasterizedImageFitness;
+import cz.eoa.templates.Individual;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of a genome and the evaluation paths built on top of it.
+ *
+ * @author Ondřej Kratochvíl
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecodingBenchmark {
+
+    @Param({"Mona_Lisa.bmp", "abstraktni_krivky.bmp", "house.bmp", "kubismus_krajina.bmp", "test.bmp"})
+    public String image;
+
+    @Param({"50", "100", "200"})
+    public int polygonCount;
+
+    @Param({"3", "5", "8"})
+    public int vertexCount;
+
+    private PolygonsToImageDecoder decoder;
+    private ImageFitness imageFitness;
+    private RasterizedImageFitness rasterizedImageFitness;
+    private Individual<PolygonGenome, BufferedImage> individual;
+    private byte[] framebuffer;
+
+    @Setup
+    public void setUp() throws IOException {
+        BufferedImage inputImage = BenchmarkImages.load(image);
+        decoder = new PolygonsToImageDecoder(inputImage);
+        imageFitness = new ImageFitness(inputImage);
+        rasterizedImageFitness = new RasterizedImageFitness(imageFitness);
+        individual = new PolygonPopulationInitialization(inputImage, polygonCount, vertexCount, 0.125f, 0.25f)
+                .initialize();
+        framebuffer = new byte[inputImage.getWidth() * inputImage.getHeight() * (imageFitness.hasAlpha() ? 4 : 3)];
+    }
+
+    @Benchmark
+    public BufferedImage decode() {
+        return decoder.decode(individual.getGenes());
+    }
+
+    @Benchmark
+    public byte[] decodeIntoFramebuffer() {
+        decoder.decode(individual.getGenes(), framebuffer);
+        return framebuffer;
+    }
+
+    @Benchmark
+    public double decodeAndAssess() {
+        return imageFitness.computeFitnessForIndividual(decoder.decode(individual.getGenes()));
+    }
+
+    @Benchmark
+    public double decodeReusableAndAssess() {
+        return imageFitness.computeFitnessForIndividual(decoder.decodeReusable(individual.getGenes()));
+    }
+
+    @Benchmark
+    public double rasterizedFitness() {
+        // plain individual, so that no evaluation state is kept between invocations
+        return rasterizedImageFitness.computeFitnessForIndividual(new ImageIndividual(individual.getGenes()));
+    }
+}
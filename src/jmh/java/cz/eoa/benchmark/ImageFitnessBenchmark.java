@@ -0,0 +1,105 @@
+package cz.eoa.benchmark;
+
+import cz.eoa.impl.function.ImageFitness;
+import cz.eoa.impl.function.PolygonPopulationInitialization;
+import cz.eoa.impl.function.PolygonsToImageDecoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare {@link ImageFitness} against the former layout, which kept the input image in four column-major
+ * {@code short[width][height]} arrays and iterated columns in the outer loop.
+ *
+ * @author Ondřej Kratochvíl
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageFitnessBenchmark {
+
+    @Param({"Mona_Lisa.bmp", "abstraktni_krivky.bmp", "house.bmp", "kubismus_krajina.bmp", "test.bmp"})
+    public String image;
+
+    private ImageFitness imageFitness;
+    private ColumnMajorImageFitness columnMajorImageFitness;
+    private BufferedImage solution;
+
+    @Setup
+    public void setUp() throws IOException {
+        BufferedImage inputImage = BenchmarkImages.load(image);
+        imageFitness = new ImageFitness(inputImage);
+        columnMajorImageFitness = new ColumnMajorImageFitness(inputImage);
+        solution = new PolygonsToImageDecoder(inputImage).decode(
+                new PolygonPopulationInitialization(inputImage, 100, 5, 0.125f, 0.25f).initialize().getGenes()
+        );
+    }
+
+    @Benchmark
+    public double rowMajor() {
+        return imageFitness.computeFitnessForIndividual(solution);
+    }
+
+    @Benchmark
+    public double columnMajor() {
+        return columnMajorImageFitness.computeFitnessForIndividual(solution);
+    }
+
+    /**
+     * Former implementation of {@link ImageFitness}, kept as the baseline.
+     */
+    private static final class ColumnMajorImageFitness {
+        private final int width;
+        private final int height;
+        private final boolean hasAlpha;
+        private final int pixelLength;
+        private final short[][] alphaArray;
+        private final short[][] redArray;
+        private final short[][] greenArray;
+        private final short[][] blueArray;
+
+        private ColumnMajorImageFitness(BufferedImage inputImage) {
+            byte[] pixels = ((DataBufferByte) inputImage.getRaster().getDataBuffer()).getData();
+            this.width = inputImage.getWidth();
+            this.height = inputImage.getHeight();
+            this.hasAlpha = inputImage.getAlphaRaster() != null;
+            this.pixelLength = hasAlpha ? 4 : 3;
+            alphaArray = new short[width][height];
+            redArray = new short[width][height];
+            greenArray = new short[width][height];
+            blueArray = new short[width][height];
+            for (int x = 0; x < width; ++x) {
+                for (int y = 0; y < height; ++y) {
+                    int position = (y * pixelLength * width) + (x * pixelLength);
+                    alphaArray[x][y] = hasAlpha ? (short) (pixels[position++] & 0xFF) : 0xFF;
+                    redArray[x][y] = (short) (pixels[position++] & 0xFF);
+                    greenArray[x][y] = (short) (pixels[position++] & 0xFF);
+                    blueArray[x][y] = (short) (pixels[position] & 0xFF);
+                }
+            }
+        }
+
+        private double computeFitnessForIndividual(BufferedImage solution) {
+            byte[] data = ((DataBufferByte) solution.getRaster().getDataBuffer()).getData();
+            double fitness = 0;
+            for (int x = 0; x < width; ++x) {
+                for (int y = 0; y < height; ++y) {
+                    int position = (y * pixelLength * width) + (x * pixelLength);
+                    int alphaDiff = (hasAlpha ? (data[position++] & 0xFF) : 0xFF) - alphaArray[x][y];
+                    int redDiff = (data[position++] & 0xFF) - redArray[x][y];
+                    int greenDiff = (data[position++] & 0xFF) - greenArray[x][y];
+                    int blueDiff = (data[position] & 0xFF) - blueArray[x][y];
+                    fitness += (alphaDiff * alphaDiff) + (redDiff * redDiff) + (greenDiff * greenDiff)
+                            + (blueDiff * blueDiff);
+                }
+            }
+            return fitness * -1;
+        }
+    }
+}
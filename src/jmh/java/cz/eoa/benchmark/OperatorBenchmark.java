@@ -0,0 +1,96 @@
+package cz.eoa.benchmark;
+
+import cz.eoa.impl.PolygonGenome;
+import cz.eoa.impl.function.*;
+import cz.eoa.templates.Individual;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mutation and crossover operators with the parameters used by {@link cz.eoa.Main}.
+ *
+ * @author Ondřej Kratochvíl
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OperatorBenchmark {
+
+    private static final double MUTATION_RATE = 0.05;
+    private static final double MUTATION_EXTENT_VERTEX = 0.1;
+    private static final double MUTATION_EXTENT_COLOUR = 0.1;
+    private static final float MIN_ALPHA = 0.125f;
+    private static final float MAX_ALPHA = 0.25f;
+
+    @Param({"Mona_Lisa.bmp", "house.bmp"})
+    public String image;
+
+    @Param({"50", "100", "200"})
+    public int polygonCount;
+
+    @Param({"3", "5", "8"})
+    public int vertexCount;
+
+    private PolygonDeltaMutation deltaMutation;
+    private PolygonReplacementMutation replacementMutation;
+    private UniformCrossover uniformCrossover;
+    private SinglePointCrossover singlePointCrossover;
+    private AlphaChildCrossover alphaChildCrossover;
+    private Individual<PolygonGenome, BufferedImage> firstParent;
+    private Individual<PolygonGenome, BufferedImage> secondParent;
+
+    @Setup
+    public void setUp() throws IOException {
+        BufferedImage inputImage = BenchmarkImages.load(image);
+        deltaMutation = new PolygonDeltaMutation(
+                MUTATION_RATE, MUTATION_EXTENT_VERTEX, MUTATION_EXTENT_COLOUR, inputImage
+        );
+        replacementMutation = new PolygonReplacementMutation(MUTATION_RATE, MIN_ALPHA, MAX_ALPHA, inputImage);
+        uniformCrossover = new UniformCrossover(0.5);
+        singlePointCrossover = new SinglePointCrossover(0.9f);
+        alphaChildCrossover = new AlphaChildCrossover(
+                new ImageFitness(inputImage), new PolygonsToImageDecoder(inputImage), uniformCrossover, 1
+        );
+        PolygonPopulationInitialization initialization = new PolygonPopulationInitialization(
+                inputImage, polygonCount, vertexCount, MIN_ALPHA, MAX_ALPHA
+        );
+        firstParent = initialization.initialize();
+        secondParent = initialization.initialize();
+    }
+
+    @Benchmark
+    public Optional<Individual<PolygonGenome, BufferedImage>> deltaMutation() {
+        return deltaMutation.mutation(firstParent);
+    }
+
+    @Benchmark
+    public Optional<Individual<PolygonGenome, BufferedImage>> replacementMutation() {
+        return replacementMutation.mutation(firstParent);
+    }
+
+    @Benchmark
+    public List<Individual<PolygonGenome, BufferedImage>> uniformCrossover() {
+        return uniformCrossover.crossover(firstParent, secondParent);
+    }
+
+    @Benchmark
+    public List<Individual<PolygonGenome, BufferedImage>> singlePointCrossover() {
+        return singlePointCrossover.crossover(firstParent, secondParent);
+    }
+
+    /**
+     * A single try, i.e. two parent and two child evaluations.
+     */
+    @Benchmark
+    public List<Individual<PolygonGenome, BufferedImage>> alphaChildCrossover() {
+        return alphaChildCrossover.crossover(firstParent, secondParent);
+    }
+}
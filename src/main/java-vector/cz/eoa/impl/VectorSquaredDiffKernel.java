@@ -0,0 +1,58 @@
+package cz.eoa.impl;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementation of {@link SquaredDiffKernel}. Bytes are loaded in vectors of the preferred size and widened
+ * part by part to int vectors of the same size, squared differences are accumulated in int lanes and flushed to
+ * a long before they could overflow.
+ * Loaded reflectively by {@link SquaredDiffKernel#vectorizedOrScalar()}.
+ *
+ * @author Ondřej Kratochvíl
+ */
+public final class VectorSquaredDiffKernel implements SquaredDiffKernel {
+
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    //same shape as the bytes, so a byte vector widens into PARTS int vectors
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final int PARTS = BYTES.length() / INTS.length();
+    /**
+     * Every lane grows by at most PARTS * 255^2 per step and the lanes are reduced in int as well, so the accumulator
+     * can take this many steps without overflow.
+     */
+    private static final int FLUSH_STEPS = Integer.MAX_VALUE / (255 * 255) / (INTS.length() * PARTS);
+
+    @Override
+    public long sum(byte[] first, int firstOffset, byte[] second, int secondOffset, int length) {
+        int step = BYTES.length();
+        int bound = length - length % step;
+        long sum = 0;
+        IntVector accumulator = IntVector.zero(INTS);
+        int steps = 0;
+        int i = 0;
+        for (; i < bound; i += step) {
+            ByteVector firstBytes = ByteVector.fromArray(BYTES, first, firstOffset + i);
+            ByteVector secondBytes = ByteVector.fromArray(BYTES, second, secondOffset + i);
+            for (int part = 0; part < PARTS; ++part) {
+                IntVector a = (IntVector) firstBytes.convertShape(VectorOperators.B2I, INTS, part);
+                IntVector b = (IntVector) secondBytes.convertShape(VectorOperators.B2I, INTS, part);
+                IntVector diff = a.and(0xFF).sub(b.and(0xFF));
+                accumulator = accumulator.add(diff.mul(diff));
+            }
+            if (++steps == FLUSH_STEPS) {
+                sum += accumulator.reduceLanesToLong(VectorOperators.ADD);
+                accumulator = IntVector.zero(INTS);
+                steps = 0;
+            }
+        }
+        sum += accumulator.reduceLanesToLong(VectorOperators.ADD);
+        for (; i < length; ++i) {
+            int diff = (first[firstOffset + i] & 0xFF) - (second[secondOffset + i] & 0xFF);
+            sum += diff * diff;
+        }
+        return sum;
+    }
+}
@@ -2,8 +2,16 @@ package cz.eoa;
 
 import cz.eoa.configuration.EvolutionConfiguration;
 import cz.eoa.configuration.EvolutionConfigurationBuilder;
+import cz.eoa.cycle.Checkpointing;
 import cz.eoa.cycle.EvolutionExecutor;
-import cz.eoa.impl.Polygon;
+import cz.eoa.cycle.EvolutionMetrics;
+import cz.eoa.cycle.MigrationTopology;
+import cz.eoa.cycle.SocketMigration;
+import cz.eoa.impl.ImageMigrantCodec;
+import cz.eoa.impl.PgcWriter;
+import cz.eoa.impl.PolygonGenome;
+import cz.eoa.impl.SnapshotWriter;
+import cz.eoa.impl.SquaredDiffKernel;
 import cz.eoa.impl.function.*;
 import cz.eoa.templates.Individual;
 import cz.eoa.templates.IndividualWithAssignedFitness;
@@ -11,10 +19,15 @@ import cz.eoa.templates.StatisticsPerEpoch;
 import cz.eoa.templates.operations.DecodingStrategy;
 
 import javax.imageio.ImageIO;
+import javax.management.JMException;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 public class Main {
@@ -34,10 +47,29 @@ public class Main {
     private static final int ELITISM_COUNT = (int) Math.round(POPULATION_SIZE * 0.02);
     private static final float MIN_ALPHA = 0.125f;
     private static final float MAX_ALPHA = 0.25f;
+    private static final String CHECKPOINT_OPTION = "--checkpoint";
+    private static final int CHECKPOINT_INTERVAL = 100;
+    private static final int MIGRATION_INTERVAL = 20;
+    private static final int MIGRANT_COUNT = 2;
+    private static final int SNAPSHOT_QUEUE_CAPACITY = 8;
+    private static final int METRICS_DUMP_SECONDS = 10;
+    private static final int RESOLUTION_LEVELS = 2;
+    private static final int REFINEMENT_PATIENCE = 20;
+    private static final double REFINEMENT_MIN_IMPROVEMENT = 0.01;
+    private static final double SAMPLE_RATIO = 0.1;
+    private static final int EXACTLY_ASSESSED_COUNT = 2;
+    private static final int FITNESS_CACHE_CAPACITY = 4096;
 
     public static void main(String[] args) throws IOException {
-        if (args.length != 2) {
-            System.err.println("Please specify input and output file names");
+        //checkpoints are opt-in, a run in a reused output directory would otherwise silently resume the previous one
+        boolean checkpoints = args.length > 0 && args[0].equals(CHECKPOINT_OPTION);
+        if (checkpoints) {
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        if (args.length != 2 && args.length != 4) {
+            System.err.println("Please specify input and output file names, optionally followed by the index "
+                    + "of this island and comma separated host:port addresses of all islands. "
+                    + "Start with " + CHECKPOINT_OPTION + " to write checkpoints and resume from them");
             System.exit(1);
         }
         // read the image
@@ -46,11 +78,34 @@ public class Main {
         BufferedImage inputImage = ImageIO.read(new File(inputFileName));
 
         PolygonsToImageDecoder polygonsToImageDecoder = new PolygonsToImageDecoder(inputImage);
-        ImageFitness imageFitness = new ImageFitness(inputImage);
+        SquaredDiffKernel kernel = SquaredDiffKernel.vectorizedOrScalar();
+        ImageFitness imageFitness = new ImageFitness(inputImage, kernel);
+        IncrementalImageFitness incrementalImageFitness = new IncrementalImageFitness(imageFitness);
+        MultiResolutionImageFitness multiResolutionFitness = new MultiResolutionImageFitness(inputImage,
+                kernel, incrementalImageFitness,
+                RESOLUTION_LEVELS, REFINEMENT_PATIENCE, REFINEMENT_MIN_IMPROVEMENT);
+        FitnessCache<PolygonGenome, BufferedImage, Double> fitnessCache = new FitnessCache<>(
+                multiResolutionFitness, PolygonGenome::hash64, FITNESS_CACHE_CAPACITY);
+        SnapshotWriter snapshotWriter = new SnapshotWriter(SNAPSHOT_QUEUE_CAPACITY);
+        Checkpointing<PolygonGenome, BufferedImage, Double> checkpointing = checkpoints
+                ? new Checkpointing<>(Paths.get(outputDirName, "checkpoint.bin"), CHECKPOINT_INTERVAL,
+                new ImageMigrantCodec(POLYGON_COUNT, POLYGON_EDGES), fingerprint(inputImage))
+                : null;
+        EvolutionMetrics metrics = new EvolutionMetrics();
+        try {
+            metrics.registerMBean(args.length == 4 ? "island-" + args[2] : "main");
+        } catch (JMException e) {
+            LOG.warning("Unable to register metrics MBean: " + e);
+        }
+        metrics.gauge("fitnessCacheHits", fitnessCache::getHits);
+        metrics.gauge("fitnessCacheMisses", fitnessCache::getMisses);
+        metrics.gauge("fitnessCacheEvictions", fitnessCache::getEvictions);
+        metrics.startDump(Paths.get(outputDirName, "metrics.csv"), EvolutionMetrics.DumpFormat.CSV,
+                METRICS_DUMP_SECONDS, TimeUnit.SECONDS);
 
         //types by order: genes, decoded genes - solution, fitness, container with statistics
-        EvolutionConfiguration<List<Polygon>, BufferedImage, Double, ImageStatisticsPerEpoch> configuration =
-                new EvolutionConfigurationBuilder<List<Polygon>, BufferedImage, Double, ImageStatisticsPerEpoch>()
+        EvolutionConfiguration<PolygonGenome, BufferedImage, Double, ImageStatisticsPerEpoch> configuration =
+                new EvolutionConfigurationBuilder<PolygonGenome, BufferedImage, Double, ImageStatisticsPerEpoch>()
                         .populationSize(POPULATION_SIZE)
                         .populationInitialization(new PolygonPopulationInitialization(
                                 inputImage,
@@ -64,8 +119,7 @@ public class Main {
 //                        .crossover(new SinglePointCrossover(CROSSOVER_POINT))
 //                        .crossover(new UniformCrossover(0.5))
                         .crossover(new AlphaChildCrossover(
-                                imageFitness,
-                                polygonsToImageDecoder,
+                                metrics.timed(fitnessCache),
                                 new UniformCrossover(0.5),
                                 20)
                         )
@@ -78,7 +132,7 @@ public class Main {
                             PolygonReplacementMutation replacementMutation = new PolygonReplacementMutation(
                                     MUTATION_RATE, MIN_ALPHA, MAX_ALPHA, inputImage
                             );
-                            Optional<Individual<List<Polygon>, BufferedImage>> individual1 =
+                            Optional<Individual<PolygonGenome, BufferedImage>> individual1 =
                                     deltaMutation.mutation(individual);
                             return replacementMutation.mutation(individual1.orElseThrow(
                                     () -> new IllegalArgumentException("No individual returned from previous mutation")
@@ -87,61 +141,129 @@ public class Main {
                         .replacement(currentPopulation -> new ArrayList<>())
 //                        .replacement(new Elitism<>(ELITISM_COUNT, true))
                         .fitnessAssessment(imageFitness)
+//                        .decodingFitnessAssessment(incrementalImageFitness)
+                        .progressiveFitnessAssessment(fitnessCache)
+//                        .estimatingFitnessAssessment(new SampledImageFitness(
+//                                imageFitness, incrementalImageFitness, SAMPLE_RATIO, 0), EXACTLY_ASSESSED_COUNT)
                         .fitnessIsMaximized(true)
                         .parallel(true)
+//                        .parallelism(4)
                         .probabilityOfCrossover(CROSSOVER_PROBABILITY)
                         .terminationCondition(epochs -> epochs.size() < GENERATION_COUNT)
+                        .metrics(metrics)
+                        .checkpointing(checkpointing)
                         .statisticsCreation(
                                 (epoch, execution, countOfFitnessEvaluations, bestIndividual, population) ->
                                         new ImageStatisticsPerEpoch(epoch, execution, countOfFitnessEvaluations,
-                                                bestIndividual, population, polygonsToImageDecoder, outputDirName)
+                                                bestIndividual, population, polygonsToImageDecoder, inputImage,
+                                                snapshotWriter, outputDirName, multiResolutionFitness.getLevel())
                         )
                         .build();
 
-        EvolutionExecutor<List<Polygon>, BufferedImage, Double, ImageStatisticsPerEpoch> executor =
-                new EvolutionExecutor<>(configuration);
-        List<ImageStatisticsPerEpoch> statistics = executor.run();
+        // island of a run spread over several processes
+        SocketMigration<PolygonGenome, BufferedImage, Double> migration = null;
+        if (args.length == 4) {
+            List<InetSocketAddress> addresses = new ArrayList<>();
+            for (String address : args[3].split(",")) {
+                int separator = address.lastIndexOf(':');
+                addresses.add(new InetSocketAddress(
+                        address.substring(0, separator), Integer.parseInt(address.substring(separator + 1))
+                ));
+            }
+            migration = new SocketMigration<>(Integer.parseInt(args[2]), addresses, MigrationTopology.ring(),
+                    MIGRATION_INTERVAL, MIGRANT_COUNT, true, new ImageMigrantCodec(POLYGON_COUNT, POLYGON_EDGES));
+        }
+
+        EvolutionExecutor<PolygonGenome, BufferedImage, Double, ImageStatisticsPerEpoch> executor =
+                new EvolutionExecutor<>(configuration, migration);
+        List<ImageStatisticsPerEpoch> statistics;
+        try {
+            statistics = executor.run();
+        } finally {
+            if (migration != null) {
+                migration.close();
+            }
+            if (checkpointing != null) {
+                checkpointing.close();
+            }
+            snapshotWriter.close();
+            metrics.stopDump();
+        }
 
         long time = statistics.stream()
                 .mapToLong(StatisticsPerEpoch::getExecution)
                 .sum();
+        //fitness of different resolution levels is not comparable, only epochs of the final one are
+        int finalLevel = statistics.get(statistics.size() - 1).getFitnessLevel();
         ImageStatisticsPerEpoch bestEpoch = statistics.stream()
+                .filter(stats -> stats.getFitnessLevel() == finalLevel)
                 .max(Comparator.comparing(stats -> stats.getBestIndividual().getFitness()))
                 .orElseThrow(() -> new IllegalArgumentException("Empty stream of epochs"));
         LOG.info("Executed in " + time + " ms, best solution in epoch " + bestEpoch.getEpoch());
     }
 
-    private static class ImageStatisticsPerEpoch extends StatisticsPerEpoch<List<Polygon>, BufferedImage, Double> {
+    /**
+     * @return hash of the dimensions and pixels of the image, identifies the problem of a checkpoint
+     */
+    private static long fingerprint(BufferedImage image) {
+        int width = image.getWidth(), height = image.getHeight();
+        long hash = 0xcbf29ce484222325L ^ ((long) width << 32 | height);
+        for (int pixel : image.getRGB(0, 0, width, height, null, 0, width)) {
+            hash = (hash ^ pixel) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static class ImageStatisticsPerEpoch extends StatisticsPerEpoch<PolygonGenome, BufferedImage, Double> {
 
         private static final String FORMAT = "jpeg";
         private static final String FILE_PREFIX = "generation";
         private final String outputDir;
+        private final int fitnessLevel;
         private static double bestFitness = Integer.MIN_VALUE;
+        //fitness of different resolution levels is not comparable
+        private static int bestFitnessLevel = -1;
 
         public ImageStatisticsPerEpoch(
                 int epoch,
                 long execution,
                 int countOfFitnessEvaluations,
-                IndividualWithAssignedFitness<List<Polygon>, BufferedImage, Double> bestIndividual,
-                List<IndividualWithAssignedFitness<List<Polygon>, BufferedImage, Double>> population,
-                DecodingStrategy<List<Polygon>, BufferedImage> decodingStrategy,
-                String outputDir
+                IndividualWithAssignedFitness<PolygonGenome, BufferedImage, Double> bestIndividual,
+                List<IndividualWithAssignedFitness<PolygonGenome, BufferedImage, Double>> population,
+                DecodingStrategy<PolygonGenome, BufferedImage> decodingStrategy,
+                BufferedImage inputImage,
+                SnapshotWriter snapshotWriter,
+                String outputDir,
+                int fitnessLevel
         ) {
             super(epoch, execution, countOfFitnessEvaluations, bestIndividual, population);
             this.outputDir = outputDir;
-            // render partial solutions
+            this.fitnessLevel = fitnessLevel;
+            // render partial solutions in the background, only the latest best one is written if the writer lags
+            Individual<PolygonGenome, BufferedImage> alphaIndividual = bestIndividual.getIndividual();
             if (epoch % RENDER_FREQUENCY == 0 || epoch == GENERATION_COUNT) {
-                Individual<List<Polygon>, BufferedImage> alphaIndividual = bestIndividual.getIndividual();
                 String fileName = String.format("%s/%s_%d.%s", outputDir, FILE_PREFIX, epoch, FORMAT);
-                renderSolution(alphaIndividual.decode(decodingStrategy), fileName);
+                snapshotWriter.submit(fileName,
+                        () -> renderSolution(alphaIndividual.decode(decodingStrategy), fileName));
             }
-            if (bestIndividual.getFitness() > bestFitness) {
+            if (fitnessLevel != bestFitnessLevel || bestIndividual.getFitness() > bestFitness) {
                 String fileName = String.format("%s/best.%s", outputDir, FORMAT);
-                renderSolution(bestIndividual.getIndividual().decode(decodingStrategy), fileName);
+                snapshotWriter.submit(fileName, () -> {
+                    renderSolution(alphaIndividual.decode(decodingStrategy), fileName);
+                    compressSolution(alphaIndividual.getGenes(), inputImage, String.format("%s/best.pgc", outputDir));
+                });
                 bestFitness = bestIndividual.getFitness();
+                bestFitnessLevel = fitnessLevel;
             }
         }
 
+        /**
+         * @return number of halvings of the resolution the epoch has been assessed at
+         */
+        public int getFitnessLevel() {
+            return fitnessLevel;
+        }
+
         @Override
         public String getSummary() {
             String s = "Epoch " + epoch +
@@ -156,13 +278,18 @@ public class Main {
             return s;
         }
 
-        private void renderSolution(BufferedImage bufferedImage, String fileName) {
-            try {
-                ImageIO.write(bufferedImage, FORMAT, new File(fileName));
-            } catch (IOException e) {
-                System.err.println("Unable to write rendered solution to file");
-                e.printStackTrace();
+        private static void renderSolution(BufferedImage bufferedImage, String fileName) throws IOException {
+            ImageIO.write(bufferedImage, FORMAT, new File(fileName));
+        }
+
+        private static void compressSolution(PolygonGenome genes, BufferedImage inputImage, String fileName)
+                throws IOException {
+            File file = new File(fileName);
+            try (FileOutputStream output = new FileOutputStream(file)) {
+                PgcWriter.write(output, genes, inputImage.getWidth(), inputImage.getHeight(),
+                        inputImage.getColorModel().hasAlpha(), false);
             }
+            LOG.fine("Compressed solution has " + file.length() + " bytes");
         }
     }
 }
@@ -0,0 +1,37 @@
+package cz.eoa;
+
+import cz.eoa.impl.PgcReader;
+import cz.eoa.impl.PolygonGenome;
+import cz.eoa.impl.function.PolygonsToImageDecoder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Renders a compressed polygon image ({@code .pgc}) back to an image file, the format is given by its extension.
+ */
+public class PgcDecoder {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Please specify input .pgc and output image file names");
+            System.exit(1);
+        }
+        PolygonsToImageDecoder decoder;
+        PolygonGenome genes;
+        try (PgcReader reader = new PgcReader(new BufferedInputStream(new FileInputStream(args[0])))) {
+            decoder = new PolygonsToImageDecoder(reader.getWidth(), reader.getHeight(),
+                    reader.hasAlpha() ? BufferedImage.TYPE_4BYTE_ABGR : BufferedImage.TYPE_3BYTE_BGR);
+            genes = reader.readGenome();
+        }
+        String format = args[1].substring(args[1].lastIndexOf('.') + 1);
+        if (!ImageIO.write(decoder.decode(genes), format, new File(args[1]))) {
+            System.err.println("No writer for image format " + format);
+            System.exit(1);
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package cz.eoa.configuration;
 
+import cz.eoa.cycle.Checkpointing;
+import cz.eoa.cycle.EvolutionMetrics;
 import cz.eoa.templates.StatisticsCreationStrategy;
 import cz.eoa.templates.StatisticsPerEpoch;
 import cz.eoa.templates.operations.*;
 import lombok.Getter;
 
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 @Getter
 public class EvolutionConfiguration<V, T, K extends Comparable<K>, L extends StatisticsPerEpoch<V, T, K>> {
@@ -17,21 +20,38 @@ public class EvolutionConfiguration<V, T, K extends Comparable<K>, L extends Sta
     private final ReplacementStrategy<V, T, K> replacement;
     private final SelectorStrategy<V, T, K> selector;
     private final boolean isParallel;
+    private final Optional<ForkJoinPool> forkJoinPool;
+    private final int parallelism;
+    private final RunMode runMode;
+    private final int replacementTournamentSize;
     private final boolean isFitnessIsMaximized;
     private final StatisticsCreationStrategy<V, T, K, L> statisticsCreation;
     private final int populationSize;
     private final double probabilityOfCrossover;
     private final TerminationCondition<V, T, K, L> terminationCondition;
     private final DecodingStrategy<V, T> decoding;
+    private final Optional<DecodingFitnessAssessmentStrategy<V, T, K>> decodingFitnessAssessment;
+    private final Optional<ProgressiveFitnessAssessmentStrategy<V, T, K>> progressiveFitnessAssessment;
+    private final Optional<EstimatingFitnessAssessmentStrategy<V, T, K>> estimatingFitnessAssessment;
+    private final int exactlyAssessedCount;
+    private final Optional<Checkpointing<V, T, K>> checkpointing;
+    private final Optional<EvolutionMetrics> metrics;
 
     EvolutionConfiguration(Optional<FitnessTweakingStrategy<V, T, K>> fitnessTweakingStrategy,
                            FitnessAssessmentStrategy<T, K> fitnessAssessment,
                            PopulationInitializationStrategy<V, T> populationInitialization, Optional<CrossoverStrategy<V, T>> crossover,
                            Optional<MutationStrategy<V, T>> mutation, ReplacementStrategy<V, T, K> replacement,
-                           SelectorStrategy<V, T, K> selector, boolean isParallel, boolean isFitnessIsMaximized,
+                           SelectorStrategy<V, T, K> selector, boolean isParallel,
+                           Optional<ForkJoinPool> forkJoinPool, int parallelism, RunMode runMode, int replacementTournamentSize,
+                           boolean isFitnessIsMaximized,
                            StatisticsCreationStrategy<V, T, K, L> statisticsCreation, int populationSize,
                            double probabilityOfCrossover,
-                           TerminationCondition<V, T, K, L> terminationCondition, DecodingStrategy<V, T> decoding) {
+                           TerminationCondition<V, T, K, L> terminationCondition, DecodingStrategy<V, T> decoding,
+                           Optional<DecodingFitnessAssessmentStrategy<V, T, K>> decodingFitnessAssessment,
+                           Optional<ProgressiveFitnessAssessmentStrategy<V, T, K>> progressiveFitnessAssessment,
+                           Optional<EstimatingFitnessAssessmentStrategy<V, T, K>> estimatingFitnessAssessment,
+                           int exactlyAssessedCount,
+                           Optional<Checkpointing<V, T, K>> checkpointing, Optional<EvolutionMetrics> metrics) {
         this.fitnessTweakingStrategy = fitnessTweakingStrategy;
         this.fitnessAssessment = fitnessAssessment;
         this.populationInitialization = populationInitialization;
@@ -40,12 +60,22 @@ public class EvolutionConfiguration<V, T, K extends Comparable<K>, L extends Sta
         this.replacement = replacement;
         this.selector = selector;
         this.isParallel = isParallel;
+        this.forkJoinPool = forkJoinPool;
+        this.parallelism = parallelism;
+        this.runMode = runMode;
+        this.replacementTournamentSize = replacementTournamentSize;
         this.isFitnessIsMaximized = isFitnessIsMaximized;
         this.statisticsCreation = statisticsCreation;
         this.populationSize = populationSize;
         this.probabilityOfCrossover = probabilityOfCrossover;
         this.terminationCondition = terminationCondition;
         this.decoding = decoding;
+        this.decodingFitnessAssessment = decodingFitnessAssessment;
+        this.progressiveFitnessAssessment = progressiveFitnessAssessment;
+        this.estimatingFitnessAssessment = estimatingFitnessAssessment;
+        this.exactlyAssessedCount = exactlyAssessedCount;
+        this.checkpointing = checkpointing;
+        this.metrics = metrics;
     }
 
 }
@@ -1,11 +1,14 @@
 package cz.eoa.configuration;
 
+import cz.eoa.cycle.Checkpointing;
+import cz.eoa.cycle.EvolutionMetrics;
 import cz.eoa.templates.StatisticsCreationStrategy;
 import cz.eoa.templates.StatisticsPerEpoch;
 import cz.eoa.templates.operations.*;
 import lombok.NoArgsConstructor;
 
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 @NoArgsConstructor
 public class EvolutionConfigurationBuilder<V, T, K extends Comparable<K>, L extends StatisticsPerEpoch<V, T, K>> {
@@ -18,12 +21,30 @@ public class EvolutionConfigurationBuilder<V, T, K extends Comparable<K>, L exte
     private ReplacementStrategy<V, T, K> replacement = null;
     private SelectorStrategy<V, T, K> selector = null;
     private boolean isParallel = true;
+    //pool running the parallel work, owned by the caller
+    private Optional<ForkJoinPool> forkJoinPool = Optional.empty();
+    //number of threads of a pool created for each run when no pool is set, the common pool is used when 0
+    private int parallelism = 0;
+    private RunMode runMode = RunMode.GENERATIONAL;
+    //size of the tournament choosing the individual replaced by a child in steady-state mode, 0 to replace the worst
+    private int replacementTournamentSize = 0;
     private boolean isFitnessIsMaximized = true;
     private StatisticsCreationStrategy<V, T, K, L> statisticsCreation = null;
     private int populationSize = 50;
     private double probabilityOfCrossover = 0.75;
     private TerminationCondition<V, T, K, L> terminationCondition = null;
     private DecodingStrategy<V, T> decoding = null;
+    //when set, used instead of decoding followed by fitness assessment
+    private Optional<DecodingFitnessAssessmentStrategy<V, T, K>> decodingFitnessAssessment = Optional.empty();
+    //decoding fitness assessment refined between epochs, when set the population is re-evaluated after a refinement
+    private Optional<ProgressiveFitnessAssessmentStrategy<V, T, K>> progressiveFitnessAssessment = Optional.empty();
+    //decoding fitness assessment estimating the fitness, the best individuals of each generation are assessed exactly
+    private Optional<EstimatingFitnessAssessmentStrategy<V, T, K>> estimatingFitnessAssessment = Optional.empty();
+    private int exactlyAssessedCount = 0;
+    //periodic checkpoints of a generational run, resumed from when present
+    private Optional<Checkpointing<V, T, K>> checkpointing = Optional.empty();
+    //timing of the stages and per epoch values of the run, not measured when empty
+    private Optional<EvolutionMetrics> metrics = Optional.empty();
 
     public EvolutionConfigurationBuilder<V, T, K, L> fitnessTweakingStrategy(FitnessTweakingStrategy<V, T, K> fitnessTweakingStrategy) {
         this.fitnessTweakingStrategy = Optional.ofNullable(fitnessTweakingStrategy);
@@ -65,6 +86,39 @@ public class EvolutionConfigurationBuilder<V, T, K extends Comparable<K>, L exte
         return copy();
     }
 
+    /**
+     * Run the parallel work on given pool instead of the common pool. The pool is owned by the caller, who shuts it
+     * down after the run.
+     */
+    public EvolutionConfigurationBuilder<V, T, K, L> forkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = Optional.ofNullable(forkJoinPool);
+        this.parallelism = 0;
+        return copy();
+    }
+
+    /**
+     * Run the parallel work on a dedicated pool of given number of threads instead of the common pool. The pool is
+     * created when a run starts and shut down when it ends.
+     */
+    public EvolutionConfigurationBuilder<V, T, K, L> parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.forkJoinPool = Optional.empty();
+        return copy();
+    }
+
+    public EvolutionConfigurationBuilder<V, T, K, L> runMode(RunMode runMode) {
+        this.runMode = runMode;
+        return copy();
+    }
+
+    public EvolutionConfigurationBuilder<V, T, K, L> replacementTournamentSize(int replacementTournamentSize) {
+        this.replacementTournamentSize = replacementTournamentSize;
+        return copy();
+    }
+
     public EvolutionConfigurationBuilder<V, T, K, L> fitnessIsMaximized(boolean fitnessIsMaximized) {
         isFitnessIsMaximized = fitnessIsMaximized;
         return copy();
@@ -95,19 +149,71 @@ public class EvolutionConfigurationBuilder<V, T, K extends Comparable<K>, L exte
         return copy();
     }
 
+    public EvolutionConfigurationBuilder<V, T, K, L> decodingFitnessAssessment(DecodingFitnessAssessmentStrategy<V, T, K> decodingFitnessAssessment) {
+        this.decodingFitnessAssessment = Optional.ofNullable(decodingFitnessAssessment);
+        this.progressiveFitnessAssessment = Optional.empty();
+        this.estimatingFitnessAssessment = Optional.empty();
+        return copy();
+    }
+
+    /**
+     * Assess fitness by a strategy refining its precision during the run, e.g. coarse-to-fine resolution. Used as
+     * the decoding fitness assessment, supported only by the generational run mode.
+     */
+    public EvolutionConfigurationBuilder<V, T, K, L> progressiveFitnessAssessment(ProgressiveFitnessAssessmentStrategy<V, T, K> progressiveFitnessAssessment) {
+        this.decodingFitnessAssessment = Optional.ofNullable(progressiveFitnessAssessment);
+        this.progressiveFitnessAssessment = Optional.ofNullable(progressiveFitnessAssessment);
+        this.estimatingFitnessAssessment = Optional.empty();
+        return copy();
+    }
+
+    /**
+     * Assess fitness by an estimate, e.g. from a sample of pixels, and exactly only for given number of the best
+     * individuals of every generation (by their estimate), so that the best and surviving individuals are exact.
+     * Used as the decoding fitness assessment, supported only by the generational run mode.
+     */
+    public EvolutionConfigurationBuilder<V, T, K, L> estimatingFitnessAssessment(EstimatingFitnessAssessmentStrategy<V, T, K> estimatingFitnessAssessment,
+                                                                              int exactlyAssessedCount) {
+        this.decodingFitnessAssessment = Optional.ofNullable(estimatingFitnessAssessment);
+        this.progressiveFitnessAssessment = Optional.empty();
+        this.estimatingFitnessAssessment = Optional.ofNullable(estimatingFitnessAssessment);
+        this.exactlyAssessedCount = exactlyAssessedCount;
+        return copy();
+    }
+
+    public EvolutionConfigurationBuilder<V, T, K, L> checkpointing(Checkpointing<V, T, K> checkpointing) {
+        this.checkpointing = Optional.ofNullable(checkpointing);
+        return copy();
+    }
+
+    public EvolutionConfigurationBuilder<V, T, K, L> metrics(EvolutionMetrics metrics) {
+        this.metrics = Optional.ofNullable(metrics);
+        return copy();
+    }
+
     private EvolutionConfigurationBuilder<V, T, K, L> copy() {
         return new EvolutionConfigurationBuilder<>(fitnessTweakingStrategy, fitnessAssessment, populationInitialization,
-                crossover, mutation, replacement, selector, isParallel, isFitnessIsMaximized, statisticsCreation, populationSize,
-                probabilityOfCrossover, terminationCondition, decoding);
+                crossover, mutation, replacement, selector, isParallel, forkJoinPool, parallelism, runMode, replacementTournamentSize,
+                isFitnessIsMaximized, statisticsCreation, populationSize,
+                probabilityOfCrossover, terminationCondition, decoding, decodingFitnessAssessment,
+                progressiveFitnessAssessment, estimatingFitnessAssessment, exactlyAssessedCount, checkpointing, metrics);
     }
 
     private EvolutionConfigurationBuilder(Optional<FitnessTweakingStrategy<V, T, K>> fitnessTweakingStrategy, FitnessAssessmentStrategy<T, K> fitnessAssessment,
                                           PopulationInitializationStrategy<V, T> populationInitialization, Optional<CrossoverStrategy<V, T>> crossover,
                                           Optional<MutationStrategy<V, T>> mutation, ReplacementStrategy<V, T, K> replacement,
-                                          SelectorStrategy<V, T, K> selector, boolean isParallel, boolean isFitnessIsMaximized,
+                                          SelectorStrategy<V, T, K> selector, boolean isParallel,
+                                          Optional<ForkJoinPool> forkJoinPool, int parallelism, RunMode runMode,
+                                          int replacementTournamentSize, boolean isFitnessIsMaximized,
                                           StatisticsCreationStrategy<V, T, K, L> statisticsCreation, int populationSize, double probabilityOfCrossover,
                                           TerminationCondition<V, T, K, L> terminationCondition,
-                                          DecodingStrategy<V, T> decoding) {
+                                          DecodingStrategy<V, T> decoding,
+                                          Optional<DecodingFitnessAssessmentStrategy<V, T, K>> decodingFitnessAssessment,
+                                          Optional<ProgressiveFitnessAssessmentStrategy<V, T, K>> progressiveFitnessAssessment,
+                                          Optional<EstimatingFitnessAssessmentStrategy<V, T, K>> estimatingFitnessAssessment,
+                                          int exactlyAssessedCount,
+                                          Optional<Checkpointing<V, T, K>> checkpointing,
+                                          Optional<EvolutionMetrics> metrics) {
         this.fitnessTweakingStrategy = fitnessTweakingStrategy;
         this.fitnessAssessment = fitnessAssessment;
         this.populationInitialization = populationInitialization;
@@ -116,12 +222,22 @@ public class EvolutionConfigurationBuilder<V, T, K extends Comparable<K>, L exte
         this.replacement = replacement;
         this.selector = selector;
         this.isParallel = isParallel;
+        this.forkJoinPool = forkJoinPool;
+        this.parallelism = parallelism;
+        this.runMode = runMode;
+        this.replacementTournamentSize = replacementTournamentSize;
         this.isFitnessIsMaximized = isFitnessIsMaximized;
         this.statisticsCreation = statisticsCreation;
         this.populationSize = populationSize;
         this.probabilityOfCrossover = probabilityOfCrossover;
         this.terminationCondition = terminationCondition;
         this.decoding = decoding;
+        this.decodingFitnessAssessment = decodingFitnessAssessment;
+        this.progressiveFitnessAssessment = progressiveFitnessAssessment;
+        this.estimatingFitnessAssessment = estimatingFitnessAssessment;
+        this.exactlyAssessedCount = exactlyAssessedCount;
+        this.checkpointing = checkpointing;
+        this.metrics = metrics;
     }
 
     public EvolutionConfiguration<V, T, K, L> build() {
@@ -129,8 +245,10 @@ public class EvolutionConfigurationBuilder<V, T, K extends Comparable<K>, L exte
         //TODO check
 
         return new EvolutionConfiguration<>(fitnessTweakingStrategy, fitnessAssessment, populationInitialization,
-                crossover, mutation, replacement, selector, isParallel, isFitnessIsMaximized, statisticsCreation, populationSize,
-                probabilityOfCrossover, terminationCondition, decoding);
+                crossover, mutation, replacement, selector, isParallel, forkJoinPool, parallelism, runMode, replacementTournamentSize,
+                isFitnessIsMaximized, statisticsCreation, populationSize,
+                probabilityOfCrossover, terminationCondition, decoding, decodingFitnessAssessment,
+                progressiveFitnessAssessment, estimatingFitnessAssessment, exactlyAssessedCount, checkpointing, metrics);
     }
 
 }
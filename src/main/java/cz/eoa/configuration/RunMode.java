@@ -0,0 +1,10 @@
+package cz.eoa.configuration;
+
+public enum RunMode {
+    //whole population is replaced every epoch
+    GENERATIONAL,
+    //children continuously replace individuals of a single population, an epoch is a population size of children
+    STEADY_STATE,
+    //steady-state population updated by a single master, workers breed and evaluate children from a bounded queue
+    ASYNCHRONOUS
+}
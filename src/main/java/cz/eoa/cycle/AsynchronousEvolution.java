@@ -0,0 +1,131 @@
+package cz.eoa.cycle;
+
+import cz.eoa.configuration.EvolutionConfiguration;
+import cz.eoa.templates.Individual;
+import cz.eoa.templates.IndividualWithAssignedFitness;
+import cz.eoa.templates.StatisticsPerEpoch;
+import lombok.AllArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Master/worker variant of the steady-state run. The master keeps a bounded queue of parent pairs filled and puts
+ * the evaluated children in the population as they arrive, the workers take the pairs, breed and evaluate
+ * the children. A slow task (e.g. a crossover retrying many times) only occupies its own worker. Parents are
+ * selected when the task is queued, so they may be a few insertions older than the population.
+ */
+class AsynchronousEvolution<V, T, K extends Comparable<K>, L extends StatisticsPerEpoch<V, T, K>>
+        extends SteadyStateEvolution<V, T, K, L> {
+    private static final int TASKS_PER_WORKER = 2;
+    private static final long POLL_TIMEOUT_MILLIS = 50;
+
+    AsynchronousEvolution(EvolutionConfiguration<V, T, K, L> configuration) {
+        super(configuration);
+    }
+
+    @Override
+    void evolve(ForkJoinPool pool) {
+        if (!configuration.isParallel()) {
+            super.evolve(pool);
+            return;
+        }
+        int workerCount = pool.getParallelism();
+        BlockingQueue<List<IndividualWithAssignedFitness<V, T, K>>> tasks = new ArrayBlockingQueue<>(
+                TASKS_PER_WORKER * workerCount
+        );
+        BlockingQueue<Result> results = new LinkedBlockingQueue<>();
+        for (int i = 0; i < workerCount; ++i) {
+            pool.execute(() -> work(tasks, results));
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            while (!isTerminated()) {
+                while (tasks.remainingCapacity() > 0) {
+                    tasks.add(selectParents());
+                }
+                Result result = results.take();
+                if (result.failure != null) {
+                    throw new IllegalStateException("Breeding of children failed", result.failure);
+                }
+                for (IndividualWithAssignedFitness<V, T, K> child : result.children) {
+                    if (!insert(child, random)) {
+                        break;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for children", e);
+        } finally {
+            terminate();
+        }
+    }
+
+    /**
+     * Breed children of the queued parents until the run terminates. A worker stopping before that posts a failure,
+     * so that the master never waits for children which will not come.
+     */
+    private void work(BlockingQueue<List<IndividualWithAssignedFitness<V, T, K>>> tasks, BlockingQueue<Result> results) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Throwable failure = null;
+        try {
+            while (!isTerminated()) {
+                TaskTaker taker = new TaskTaker(tasks);
+                ForkJoinPool.managedBlock(taker);
+                if (taker.parents == null) {
+                    continue;
+                }
+                List<IndividualWithAssignedFitness<V, T, K>> children = new ArrayList<>(2);
+                for (Individual<V, T> child : createChildren(taker.parents.get(0), taker.parents.get(1), random)) {
+                    children.add(evaluate(child));
+                }
+                results.add(new Result(children, null));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = e;
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        } finally {
+            if (failure != null || !isTerminated()) {
+                results.add(new Result(null, failure != null ? failure : new IllegalStateException("Worker stopped")));
+            }
+        }
+    }
+
+    /**
+     * Waiting for parents in a pool worker, which lets the pool add a thread meanwhile, so that the waiting workers do
+     * not starve other parallel work of the pool.
+     */
+    private class TaskTaker implements ForkJoinPool.ManagedBlocker {
+        private final BlockingQueue<List<IndividualWithAssignedFitness<V, T, K>>> tasks;
+        //null if no parents have been queued within the timeout
+        private List<IndividualWithAssignedFitness<V, T, K>> parents = null;
+
+        private TaskTaker(BlockingQueue<List<IndividualWithAssignedFitness<V, T, K>>> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            if (parents == null) {
+                parents = tasks.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return parents != null || (parents = tasks.poll()) != null;
+        }
+    }
+
+    @AllArgsConstructor
+    private class Result {
+        private final List<IndividualWithAssignedFitness<V, T, K>> children;
+        private final Throwable failure;
+    }
+}
@@ -0,0 +1,204 @@
+package cz.eoa.cycle;
+
+import cz.eoa.templates.IndividualWithAssignedFitness;
+import cz.eoa.templates.IndividualWithTweakedFitness;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Periodic checkpoints of a generational run, from which a restarted run resumes. A checkpoint holds a fingerprint
+ * of the solved problem, the epoch, the number of refinements of a progressive fitness assessment, the best individual
+ * found so far and the whole population:
+ * <pre>
+ * int magic, byte version, long fingerprint, int epoch, int refinements, best individual, int population size,
+ * individuals
+ * </pre>
+ * with individuals encoded by a {@link MigrantCodec}. A checkpoint with another fingerprint is refused, so that a run
+ * on another problem (e.g. another input image) does not continue with individuals evolved for the previous one.
+ * Random generators of the operators are not part of the state, a resumed run does not repeat the interrupted one.
+ * Checkpoints are written on a background thread into a temporary file which then atomically replaces the previous
+ * checkpoint, so the file is always complete.
+ * If the previous checkpoint is still being written, the new one is skipped instead of stalling the run.
+ * The owner closes the checkpointing when the run is over, which completes the pending checkpoint.
+ */
+public class Checkpointing<V, T, K extends Comparable<K>> implements Closeable {
+    private final static Logger logger = Logger.getLogger(Checkpointing.class.getName());
+    private static final int MAGIC = 0x50474350;
+    private static final int VERSION = 3;
+
+    private final Path file;
+    private final int interval;
+    private final MigrantCodec<V, T, K> codec;
+    private final long fingerprint;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "checkpoint-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    //used only by the thread of the run
+    private Future<?> pendingWrite = null;
+
+    /**
+     * @param file     checkpoint file, resumed from if it exists when the run starts
+     * @param interval number of epochs between checkpoints
+     * @param codec    binary encoding of the individuals
+     */
+    public Checkpointing(Path file, int interval, MigrantCodec<V, T, K> codec) {
+        this(file, interval, codec, 0);
+    }
+
+    /**
+     * @param file        checkpoint file, resumed from if it exists when the run starts
+     * @param interval    number of epochs between checkpoints
+     * @param codec       binary encoding of the individuals
+     * @param fingerprint identity of the solved problem, the run resumes only from a checkpoint with the same one
+     */
+    public Checkpointing(Path file, int interval, MigrantCodec<V, T, K> codec, long fingerprint) {
+        assert interval > 0;
+        this.file = file;
+        this.interval = interval;
+        this.codec = codec;
+        this.fingerprint = fingerprint;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return state of the last checkpoint, or empty if there is none
+     * @throws IOException if the checkpoint cannot be read or has been written for another problem
+     */
+    public Optional<State<V, T, K>> load() throws IOException {
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC || input.readUnsignedByte() != VERSION) {
+                throw new IOException("Not a checkpoint: " + file);
+            }
+            if (input.readLong() != fingerprint) {
+                throw new IOException("Checkpoint " + file + " has been written for another problem, "
+                        + "remove it to start a new run");
+            }
+            int epoch = input.readInt();
+            int refinements = input.readInt();
+            IndividualWithAssignedFitness<V, T, K> best = codec.read(input);
+            int size = input.readInt();
+            List<IndividualWithAssignedFitness<V, T, K>> population = new ArrayList<>(size);
+            for (int i = 0; i < size; ++i) {
+                population.add(codec.read(input));
+            }
+            return Optional.of(new State<>(epoch, refinements, best, population));
+        }
+    }
+
+    /**
+     * Write a checkpoint in the background, unless the previous one is still being written.
+     *
+     * @param state state of the run, individuals with tweaked fitness are stored as the original ones
+     */
+    void save(State<V, T, K> state) {
+        if (writer.isShutdown()) {
+            throw new IllegalStateException("Checkpointing is closed");
+        }
+        if (pendingWrite != null && !pendingWrite.isDone()) {
+            logger.fine("Previous checkpoint not written yet, skipping epoch " + state.getEpoch());
+            return;
+        }
+        pendingWrite = writer.submit(() -> {
+            try {
+                write(state);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Writing of checkpoint failed", e);
+            }
+        });
+    }
+
+    /**
+     * Wait until the checkpoint being written, if any, is complete.
+     */
+    void awaitPendingWrite() {
+        if (pendingWrite == null) {
+            return;
+        }
+        try {
+            pendingWrite.get(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Writing of checkpoint failed", e);
+        }
+    }
+
+    /**
+     * Complete the checkpoint being written, if any, and stop the writer.
+     */
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.warning("Checkpoint not written within a minute, abandoning it");
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(State<V, T, K> state) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileOutputStream stream = new FileOutputStream(temporary.toFile());
+                 DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream))) {
+                output.writeInt(MAGIC);
+                output.writeByte(VERSION);
+                output.writeLong(fingerprint);
+                output.writeInt(state.getEpoch());
+                output.writeInt(state.getRefinements());
+                codec.write(original(state.getBest()), output);
+                output.writeInt(state.getPopulation().size());
+                for (IndividualWithAssignedFitness<V, T, K> individual : state.getPopulation()) {
+                    codec.write(original(individual), output);
+                }
+                output.flush();
+                stream.getFD().sync();
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private IndividualWithAssignedFitness<V, T, K> original(IndividualWithAssignedFitness<V, T, K> individual) {
+        return individual instanceof IndividualWithTweakedFitness
+                ? ((IndividualWithTweakedFitness<V, T, K>) individual).getOriginalIndividual()
+                : individual;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class State<V, T, K extends Comparable<K>> {
+        private final int epoch;
+        //refinements of the progressive fitness assessment the individuals have been assessed with
+        private final int refinements;
+        private final IndividualWithAssignedFitness<V, T, K> best;
+        private final List<IndividualWithAssignedFitness<V, T, K>> population;
+    }
+}
@@ -1,15 +1,23 @@
 package cz.eoa.cycle;
 
 import cz.eoa.configuration.EvolutionConfiguration;
+import cz.eoa.configuration.RunMode;
+import cz.eoa.templates.BestIndividuals;
 import cz.eoa.templates.Individual;
 import cz.eoa.templates.IndividualWithAssignedFitness;
 import cz.eoa.templates.IndividualWithTweakedFitness;
 import cz.eoa.templates.StatisticsPerEpoch;
 import cz.eoa.templates.operations.IndividualFitnessUpdater;
+import cz.eoa.templates.operations.ProgressiveFitnessAssessmentStrategy;
+import cz.eoa.templates.operations.SelectorStrategy;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -20,18 +28,73 @@ public class EvolutionExecutor<V, T, K extends Comparable<K>, L extends Statisti
     private final static Logger logger = Logger.getLogger(EvolutionExecutor.class.getName());
     private final static Random RANDOM = new Random();
 
+    //selections of a second parent equal to the first one, after which it is picked uniformly
+    private final static int SECOND_PARENT_ATTEMPTS = 100;
+
+    private final Optional<Migration<V, T, K>> migration;
+
     public EvolutionExecutor(EvolutionConfiguration<V, T, K, L> configuration) {
+        this(configuration, null);
+    }
+
+    /**
+     * @param migration exchange of individuals after every epoch, supported only by the generational run mode
+     */
+    public EvolutionExecutor(EvolutionConfiguration<V, T, K, L> configuration, Migration<V, T, K> migration) {
+        if (migration != null && configuration.getRunMode() != RunMode.GENERATIONAL) {
+            throw new IllegalArgumentException("Migration is supported only in generational mode");
+        }
         this.configuration = configuration;
+        this.migration = Optional.ofNullable(migration);
     }
 
     public List<L> run() {
+        //a pool of the configured parallelism belongs to this run, a pool set in the configuration to its caller
+        ForkJoinPool ownPool = configuration.getParallelism() > 0 ? new ForkJoinPool(configuration.getParallelism()) : null;
+        try {
+            ForkJoinPool pool = ownPool != null ? ownPool
+                    : configuration.getForkJoinPool().orElse(ForkJoinPool.commonPool());
+            if (configuration.getRunMode() == RunMode.STEADY_STATE) {
+                return new SteadyStateEvolution<>(configuration).run(pool);
+            }
+            if (configuration.getRunMode() == RunMode.ASYNCHRONOUS) {
+                return new AsynchronousEvolution<>(configuration).run(pool);
+            }
+            //parallel streams run in the pool of the task which starts them, so the whole run is submitted to the pool
+            if (pool != ForkJoinPool.commonPool()) {
+                return pool.submit(this::runEpochs).join();
+            }
+            return runEpochs();
+        } finally {
+            if (ownPool != null) {
+                ownPool.shutdown();
+            }
+        }
+    }
+
+    private List<L> runEpochs() {
         List<L> epochStatistics = new ArrayList<>();
 
-        //start init first population
+        //start init first population, or resume from the last checkpoint
         long start = System.currentTimeMillis();
-        Stream<Individual<V, T>> populationStream = IntStream.range(0, configuration.getPopulationSize()).boxed()
-                .map(integer -> configuration.getPopulationInitialization().initialize());
-        Stream<IndividualWithAssignedFitness<V, T, K>> populationWithAssignedFitness = assignFitnessToIndividuals(populationStream);
+        Optional<Checkpointing.State<V, T, K>> resumed = loadCheckpoint();
+        Stream<IndividualWithAssignedFitness<V, T, K>> populationWithAssignedFitness;
+        if (resumed.isPresent()) {
+            populationWithAssignedFitness = resumed.get().getPopulation().stream();
+            //continue with the precision the checkpoint has been assessed with
+            int refinements = resumed.get().getRefinements();
+            configuration.getProgressiveFitnessAssessment()
+                    .ifPresent(assessment -> assessment.restoreRefinements(refinements));
+        } else {
+            Stream<Individual<V, T>> populationStream = IntStream.range(0, configuration.getPopulationSize()).boxed()
+                    .map(integer -> configuration.getPopulationInitialization().initialize());
+            populationWithAssignedFitness = assignFitnessToIndividuals(populationStream);
+            if (configuration.getEstimatingFitnessAssessment().isPresent()) {
+                populationWithAssignedFitness = assessBestExactly((configuration.isParallel()
+                        ? populationWithAssignedFitness.parallel()
+                        : populationWithAssignedFitness).collect(Collectors.toList())).stream();
+            }
+        }
 
         //recompute fitness if tweaking is set
         if (configuration.getFitnessTweakingStrategy().isPresent()) {
@@ -43,12 +106,29 @@ public class EvolutionExecutor<V, T, K extends Comparable<K>, L extends Statisti
         List<IndividualWithAssignedFitness<V, T, K>> currentPopulation = (configuration.isParallel()
                 ? populationWithAssignedFitness.parallel()
                 : populationWithAssignedFitness).collect(Collectors.toList());
-        epochStatistics.add(createNewStatistics(0, start, currentPopulation.size(), currentPopulation));
+        int epoch = resumed.map(Checkpointing.State::getEpoch).orElse(0);
+        epochStatistics.add(createNewStatistics(epoch, start, resumed.isPresent() ? 0 : currentPopulation.size(),
+                currentPopulation));
+        closeMetrics(epochStatistics.get(epochStatistics.size() - 1), currentPopulation);
         logger.info(epochStatistics.get(epochStatistics.size() - 1).getSummary());
+        IndividualWithAssignedFitness<V, T, K> bestSoFar = better(
+                resumed.map(Checkpointing.State::getBest).orElse(null),
+                epochStatistics.get(epochStatistics.size() - 1).getBestIndividual()
+        );
+        if (refineFitnessAssessment(epoch, bestSoFar)) {
+            currentPopulation = reevaluate(currentPopulation);
+            bestSoFar = best(currentPopulation);
+        }
+        if (migration.isPresent()) {
+            currentPopulation = migration.get().migrate(epoch, currentPopulation);
+        }
+        if (!resumed.isPresent()) {
+            saveCheckpoint(epoch, bestSoFar, currentPopulation);
+        }
         //end init first population
 
         //execute epochs, terminate when user's condition is met
-        int epoch = 1;
+        epoch++;
         while (configuration.getTerminationCondition().shouldTerminate(epochStatistics)) {
             start = System.currentTimeMillis();
             int fitnessEvaluations = 0;
@@ -62,28 +142,35 @@ public class EvolutionExecutor<V, T, K extends Comparable<K>, L extends Statisti
                         .collect(Collectors.toList());
             }
 
+            List<IndividualWithAssignedFitness<V, T, K>> pool = Collections.unmodifiableList(currentPopulation);
+            long preparationStart = start(EvolutionMetrics.Stage.SELECTION);
+            configuration.getSelector().prepare(pool);
+            record(EvolutionMetrics.Stage.SELECTION, preparationStart);
+
             //init rest of the population in new generation
             while (newIndividuals.size() < configuration.getPopulationSize()) {
                 int pairs = ((configuration.getPopulationSize() - newIndividuals.size()) % 2 == 0 ? 0 : 1) + ((configuration.getPopulationSize() - newIndividuals.size()) / 2);
 
                 //chain operations as much as possible - to run them in parallel if configured
-                List<IndividualWithAssignedFitness<V, T, K>> pool = Collections.unmodifiableList(currentPopulation);
                 Stream<List<IndividualWithAssignedFitness<V, T, K>>> streamOfParentsPairs = IntStream.range(0, pairs).boxed()
                         .map(integer -> {
-                            IndividualWithAssignedFitness<V, T, K> firstParent = configuration.getSelector().select(pool), secondParent = null;
-                            while (secondParent == null || firstParent.equals(secondParent)) {
-                                secondParent = configuration.getSelector().select(pool);
-                            }
+                            long selectionStart = start(EvolutionMetrics.Stage.SELECTION);
+                            IndividualWithAssignedFitness<V, T, K> firstParent = configuration.getSelector().select(pool);
+                            IndividualWithAssignedFitness<V, T, K> secondParent = selectSecondParent(
+                                    configuration.getSelector(), pool, firstParent);
+                            record(EvolutionMetrics.Stage.SELECTION, selectionStart);
                             return Stream.of(firstParent, secondParent).collect(Collectors.toList());
                         });
                 Stream<IndividualWithFitnessAssessmentStatus> newBatchOfIndividualsStream = streamOfParentsPairs.flatMap(parents -> {
                     if (configuration.getCrossover().isPresent() && RANDOM.nextDouble() <= configuration.getProbabilityOfCrossover()) {
+                        long crossoverStart = start(EvolutionMetrics.Stage.CROSSOVER);
                         Stream<Individual<V, T>> offspring = configuration.getCrossover().get()
                                 .crossover(parents.get(0).getIndividual(), parents.get(1).getIndividual())
                                 .stream();
+                        record(EvolutionMetrics.Stage.CROSSOVER, crossoverStart);
                         if (configuration.getMutation().isPresent()) {
                             offspring = offspring
-                                    .map(individual -> configuration.getMutation().get().mutation(individual))
+                                    .map(this::mutate)
                                     .filter(Optional::isPresent)
                                     .map(Optional::get);
                         }
@@ -93,15 +180,12 @@ public class EvolutionExecutor<V, T, K extends Comparable<K>, L extends Statisti
                         if (configuration.getMutation().isPresent()) {
                             return parents.stream()
                                     .map(individual -> {
-                                        Optional<Individual<V, T>> mutated = configuration.getMutation().get()
-                                                .mutation(individual.getIndividual());
+                                        Optional<Individual<V, T>> mutated = mutate(individual.getIndividual());
                                         if (mutated.isPresent() && !mutated.get().equals(individual.getIndividual())) {
                                             return new IndividualWithFitnessAssessmentStatus(
                                                     new IndividualWithAssignedFitness<>(
                                                             mutated.get(),
-                                                            configuration.getFitnessAssessment()
-                                                                    .computeFitnessForIndividual(mutated.get()
-                                                                            .decode(configuration.getDecoding()))
+                                                            computeFitness(mutated.get())
                                                     ), true
                                             );
                                         }
@@ -126,6 +210,8 @@ public class EvolutionExecutor<V, T, K extends Comparable<K>, L extends Statisti
                 );
             }
 
+            newIndividuals = assessBestExactly(newIndividuals);
+
             //recompute fitness if tweaking is set
             if (configuration.getFitnessTweakingStrategy().isPresent()) {
                 newIndividuals = recomputeFitnessForPopulation(newIndividuals).collect(Collectors.toList());
@@ -134,23 +220,97 @@ public class EvolutionExecutor<V, T, K extends Comparable<K>, L extends Statisti
             //make new generation and statistics
             //trim population if needed based on fitness
             if (newIndividuals.size() > configuration.getPopulationSize()) {
-                Collections.sort(newIndividuals);
-                if (configuration.isFitnessIsMaximized()) {
-                    Collections.reverse(newIndividuals);
-                }
-                currentPopulation = newIndividuals.subList(0, configuration.getPopulationSize());
+                currentPopulation = BestIndividuals.select(newIndividuals, configuration.getPopulationSize(),
+                        configuration.isFitnessIsMaximized());
             } else {
                 currentPopulation = newIndividuals;
             }
             epochStatistics.add(createNewStatistics(epoch, start, currentPopulation.size(), currentPopulation));
+            closeMetrics(epochStatistics.get(epochStatistics.size() - 1), currentPopulation);
             logger.info(epochStatistics.get(epochStatistics.size() - 1).getSummary());
+            bestSoFar = better(bestSoFar, epochStatistics.get(epochStatistics.size() - 1).getBestIndividual());
+            if (refineFitnessAssessment(epoch, epochStatistics.get(epochStatistics.size() - 1).getBestIndividual())) {
+                currentPopulation = reevaluate(currentPopulation);
+                bestSoFar = best(currentPopulation);
+            }
+            if (migration.isPresent()) {
+                currentPopulation = migration.get().migrate(epoch, currentPopulation);
+            }
+            saveCheckpoint(epoch, bestSoFar, currentPopulation);
 
             epoch++;
         }
 
+        configuration.getCheckpointing().ifPresent(Checkpointing::awaitPendingWrite);
         return epochStatistics;
     }
 
+    private Optional<Checkpointing.State<V, T, K>> loadCheckpoint() {
+        if (!configuration.getCheckpointing().isPresent()) {
+            return Optional.empty();
+        }
+        try {
+            Optional<Checkpointing.State<V, T, K>> state = configuration.getCheckpointing().get().load();
+            state.ifPresent(checkpoint -> logger.info("Resuming from checkpoint of epoch " + checkpoint.getEpoch()
+                    + ", best fitness so far: " + checkpoint.getBest().getFitness()));
+            return state;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to resume from checkpoint", e);
+        }
+    }
+
+    private void saveCheckpoint(int epoch, IndividualWithAssignedFitness<V, T, K> bestSoFar,
+                                List<IndividualWithAssignedFitness<V, T, K>> population) {
+        if (configuration.getCheckpointing().isPresent() && epoch % configuration.getCheckpointing().get().getInterval() == 0) {
+            configuration.getCheckpointing().get().save(
+                    new Checkpointing.State<>(epoch, configuration.getProgressiveFitnessAssessment()
+                            .map(ProgressiveFitnessAssessmentStrategy::getRefinements).orElse(0),
+                            bestSoFar, new ArrayList<>(population))
+            );
+        }
+    }
+
+    /**
+     * @return parent other than the first one, picked uniformly if the selector keeps returning the first one (e.g. as
+     * the only individual with a non-zero weight), or the first one if the whole population equals it
+     */
+    static <V, T, K extends Comparable<K>> IndividualWithAssignedFitness<V, T, K> selectSecondParent(
+            SelectorStrategy<V, T, K> selector, List<IndividualWithAssignedFitness<V, T, K>> pool,
+            IndividualWithAssignedFitness<V, T, K> firstParent) {
+        for (int i = 0; i < SECOND_PARENT_ATTEMPTS; ++i) {
+            IndividualWithAssignedFitness<V, T, K> secondParent = selector.select(pool);
+            if (secondParent != null && !firstParent.equals(secondParent)) {
+                return secondParent;
+            }
+        }
+        int offset = ThreadLocalRandom.current().nextInt(pool.size());
+        for (int i = 0; i < pool.size(); ++i) {
+            IndividualWithAssignedFitness<V, T, K> candidate = pool.get((offset + i) % pool.size());
+            if (!firstParent.equals(candidate)) {
+                return candidate;
+            }
+        }
+        return firstParent;
+    }
+
+    private IndividualWithAssignedFitness<V, T, K> better(IndividualWithAssignedFitness<V, T, K> first,
+                                                          IndividualWithAssignedFitness<V, T, K> second) {
+        if (first == null) {
+            return second;
+        }
+        int comparison = first.compareTo(second);
+        return (configuration.isFitnessIsMaximized() ? comparison >= 0 : comparison <= 0) ? first : second;
+    }
+
+    /**
+     * Individual with fitness assessed exactly by the estimating fitness assessment.
+     */
+    private static class ExactlyAssessed<V, T, K extends Comparable<K>> extends IndividualWithAssignedFitness<V, T, K> {
+        ExactlyAssessed(Individual<V, T> individual, K fitness) {
+            super(individual, fitness);
+        }
+    }
+
     @AllArgsConstructor
     @Getter
     private class IndividualWithFitnessAssessmentStatus {
@@ -160,19 +320,111 @@ public class EvolutionExecutor<V, T, K extends Comparable<K>, L extends Statisti
 
     private L createNewStatistics(int epoch, long startTime, int countOfFitnessEvaluation, List<IndividualWithAssignedFitness<V, T, K>> currentPopulation) {
         return configuration.getStatisticsCreation().returnStatistics(epoch, System.currentTimeMillis() - startTime,
-                countOfFitnessEvaluation, (configuration.isFitnessIsMaximized()
-                        ? currentPopulation.stream().max(Comparator.comparing(ind -> ind))
-                        : currentPopulation.stream().min(Comparator.comparing(ind -> ind))).get(),
-                Collections.unmodifiableList(currentPopulation));
+                countOfFitnessEvaluation, best(currentPopulation), Collections.unmodifiableList(currentPopulation));
+    }
+
+    private IndividualWithAssignedFitness<V, T, K> best(List<IndividualWithAssignedFitness<V, T, K>> population) {
+        return (configuration.isFitnessIsMaximized()
+                ? population.stream().max(Comparator.comparing(ind -> ind))
+                : population.stream().min(Comparator.comparing(ind -> ind))).get();
+    }
+
+    /**
+     * @return true if the progressive fitness assessment has been refined, fitness of the population is outdated then
+     */
+    private boolean refineFitnessAssessment(int epoch, IndividualWithAssignedFitness<V, T, K> best) {
+        return configuration.getProgressiveFitnessAssessment().isPresent()
+                && configuration.getProgressiveFitnessAssessment().get().refine(epoch, best.getFitness());
+    }
+
+    /**
+     * Assess exactly the best individuals by their estimated fitness, unless they have been already.
+     */
+    private List<IndividualWithAssignedFitness<V, T, K>> assessBestExactly(List<IndividualWithAssignedFitness<V, T, K>> population) {
+        if (!configuration.getEstimatingFitnessAssessment().isPresent()) {
+            return population;
+        }
+        int[] estimated = Arrays.stream(BestIndividuals.selectIndices(population,
+                configuration.getExactlyAssessedCount(), configuration.isFitnessIsMaximized()))
+                .filter(index -> !(population.get(index) instanceof ExactlyAssessed))
+                .toArray();
+        IntStream indices = Arrays.stream(estimated);
+        List<IndividualWithAssignedFitness<V, T, K>> exact = (configuration.isParallel() ? indices.parallel() : indices)
+                .mapToObj(index -> assessExactly(population.get(index).getIndividual()))
+                .collect(Collectors.toList());
+        List<IndividualWithAssignedFitness<V, T, K>> assessed = new ArrayList<>(population);
+        for (int i = 0; i < estimated.length; ++i) {
+            assessed.set(estimated[i], exact.get(i));
+        }
+        //an exact fitness may be worse than the estimate of another individual, which then becomes the best
+        IndividualWithAssignedFitness<V, T, K> best = best(assessed);
+        while (!(best instanceof ExactlyAssessed)) {
+            assessed.set(assessed.indexOf(best), assessExactly(best.getIndividual()));
+            best = best(assessed);
+        }
+        return assessed;
+    }
+
+    private IndividualWithAssignedFitness<V, T, K> assessExactly(Individual<V, T> individual) {
+        long start = start(EvolutionMetrics.Stage.EVALUATION);
+        K fitness = configuration.getEstimatingFitnessAssessment().get().computeExactFitnessForIndividual(individual);
+        record(EvolutionMetrics.Stage.EVALUATION, start);
+        return new ExactlyAssessed<>(individual, fitness);
+    }
+
+    private List<IndividualWithAssignedFitness<V, T, K>> reevaluate(List<IndividualWithAssignedFitness<V, T, K>> population) {
+        Stream<Individual<V, T>> individuals = population.stream().map(IndividualWithAssignedFitness::getIndividual);
+        List<IndividualWithAssignedFitness<V, T, K>> reevaluated = (configuration.isParallel()
+                ? assignFitnessToIndividuals(individuals.parallel())
+                : assignFitnessToIndividuals(individuals)).collect(Collectors.toList());
+        if (configuration.getFitnessTweakingStrategy().isPresent()) {
+            reevaluated = recomputeFitnessForPopulation(reevaluated).collect(Collectors.toList());
+        }
+        return reevaluated;
     }
 
     private Stream<IndividualWithAssignedFitness<V, T, K>> assignFitnessToIndividuals(Stream<Individual<V, T>> individualsStream) {
         return individualsStream
-                .map(vIndividual -> new IndividualWithAssignedFitness<>(
-                        vIndividual,
-                        configuration.getFitnessAssessment()
-                                .computeFitnessForIndividual(vIndividual.decode(configuration.getDecoding())))
-                );
+                .map(vIndividual -> new IndividualWithAssignedFitness<>(vIndividual, computeFitness(vIndividual)));
+    }
+
+    private Optional<Individual<V, T>> mutate(Individual<V, T> individual) {
+        long start = start(EvolutionMetrics.Stage.MUTATION);
+        Optional<Individual<V, T>> mutated = configuration.getMutation().get().mutation(individual);
+        record(EvolutionMetrics.Stage.MUTATION, start);
+        return mutated;
+    }
+
+    private K computeFitness(Individual<V, T> individual) {
+        if (configuration.getDecodingFitnessAssessment().isPresent()) {
+            return configuration.getMetrics().isPresent()
+                    ? configuration.getMetrics().get().evaluate(configuration.getDecodingFitnessAssessment().get(), individual)
+                    : configuration.getDecodingFitnessAssessment().get().computeFitnessForIndividual(individual);
+        }
+        long start = start(EvolutionMetrics.Stage.DECODING);
+        T decoded = individual.decode(configuration.getDecoding());
+        record(EvolutionMetrics.Stage.DECODING, start);
+        long scoringStart = start(EvolutionMetrics.Stage.SCORING);
+        K fitness = configuration.getFitnessAssessment().computeFitnessForIndividual(decoded);
+        record(EvolutionMetrics.Stage.SCORING, scoringStart);
+        return fitness;
+    }
+
+    private long start(EvolutionMetrics.Stage stage) {
+        return configuration.getMetrics().isPresent() ? configuration.getMetrics().get().start(stage) : 0;
+    }
+
+    private void record(EvolutionMetrics.Stage stage, long start) {
+        if (configuration.getMetrics().isPresent()) {
+            configuration.getMetrics().get().stop(stage, start);
+        }
+    }
+
+    private void closeMetrics(L statistics, List<IndividualWithAssignedFitness<V, T, K>> population) {
+        if (configuration.getMetrics().isPresent()) {
+            configuration.getMetrics().get().closeEpoch(statistics.getEpoch(), statistics.getExecution(),
+                    statistics.getBestIndividual(), population);
+        }
     }
 
     private Stream<IndividualWithAssignedFitness<V, T, K>> recomputeFitnessForPopulation(List<IndividualWithAssignedFitness<V, T, K>> population) {
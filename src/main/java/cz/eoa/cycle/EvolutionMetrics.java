@@ -0,0 +1,391 @@
+package cz.eoa.cycle;
+
+import cz.eoa.templates.Individual;
+import cz.eoa.templates.IndividualWithAssignedFitness;
+import cz.eoa.templates.operations.DecodingFitnessAssessmentStrategy;
+
+import javax.management.*;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Metrics of a run: time spent in the stages of breeding and evaluation, evaluations per second, memory allocated
+ * in each stage and the best and average fitness, each for the last closed epoch. Stages are timed into striped
+ * counters ({@link LongAdder}), so recording from many threads does not contend; an epoch is closed by the executor,
+ * which takes the values of the epoch and resets the counters. Allocation of a stage is measured on the thread
+ * running it, between {@link #start(Stage)} and {@link #stop(Stage, long)}.
+ * <p>
+ * An assessment decoding and scoring in one step ({@link #evaluate(DecodingFitnessAssessmentStrategy, Individual)})
+ * is split into decoding and scoring when it reports its decoding time ({@link #reportDecoding(long)}), otherwise it
+ * is recorded as {@link Stage#EVALUATION}. Evaluations done by an operator, e.g. a crossover assessing its children,
+ * are recorded when the operator's assessment is wrapped by {@link #timed(DecodingFitnessAssessmentStrategy)}; their
+ * time and allocation are then part of the operator's stage as well.
+ * <p>
+ * The values are exposed as attributes of an MBean ({@link #registerMBean(String)}) and can be periodically
+ * appended to a CSV or JSON lines file ({@link #startDump(Path, DumpFormat, long, TimeUnit)}).
+ */
+public class EvolutionMetrics {
+    private final static Logger logger = Logger.getLogger(EvolutionMetrics.class.getName());
+    //upper bounds of the histogram buckets are powers of two nanoseconds, up to about 9 minutes
+    private static final int BUCKETS = 40;
+    //null if the JVM does not measure allocation of threads
+    private static final com.sun.management.ThreadMXBean THREADS = allocationMeasuringThreads();
+    //decoding time reported by the assessment running on the thread, negative if none has been reported
+    private static final ThreadLocal<long[]> reportedDecoding = ThreadLocal.withInitial(() -> new long[]{-1});
+
+    public enum Stage {
+        SELECTION, CROSSOVER, MUTATION, DECODING, SCORING,
+        /**
+         * Decoding and scoring by a single {@link DecodingFitnessAssessmentStrategy} which does not report its decoding
+         * time, e.g. a hit of a fitness cache.
+         */
+        EVALUATION
+    }
+
+    public enum DumpFormat {
+        CSV, JSON
+    }
+
+    private final Timer[] timers = new Timer[Stage.values().length];
+    private final LongAdder evaluations = new LongAdder();
+    //guarded by itself
+    private final Map<String, Supplier<? extends Number>> gauges = new LinkedHashMap<>();
+    //bytes allocated by the thread when it started the stages it is running
+    private final ThreadLocal<long[]> allocationStarts = ThreadLocal.withInitial(() -> new long[Stage.values().length]);
+    private volatile Map<String, Number> snapshot = Collections.emptyMap();
+    private ScheduledExecutorService dumper = null;
+    //used only by the dumping thread
+    private Map<String, Number> dumped = null;
+
+    public EvolutionMetrics() {
+        for (int i = 0; i < timers.length; ++i) {
+            timers[i] = new Timer();
+        }
+    }
+
+    /**
+     * Record time spent in a stage, for evaluation stages also counts an evaluation.
+     */
+    public void record(Stage stage, long nanos) {
+        record(stage, nanos, 0);
+    }
+
+    /**
+     * Start a stage on the current thread.
+     *
+     * @return start of the stage, to be passed to {@link #stop(Stage, long)} on the same thread
+     */
+    public long start(Stage stage) {
+        allocationStarts.get()[stage.ordinal()] = threadAllocatedBytes();
+        return System.nanoTime();
+    }
+
+    /**
+     * Record time and allocation of a stage started on the current thread.
+     *
+     * @param start value returned by {@link #start(Stage)}
+     */
+    public void stop(Stage stage, long start) {
+        long nanos = System.nanoTime() - start;
+        record(stage, nanos, threadAllocatedBytes() - allocationStarts.get()[stage.ordinal()]);
+    }
+
+    /**
+     * Assess an individual and record the evaluation, split into decoding and scoring if the assessment reports
+     * the time it has spent decoding.
+     */
+    public <V, T, K extends Comparable<K>> K evaluate(DecodingFitnessAssessmentStrategy<V, T, K> assessment,
+                                                      Individual<V, T> individual) {
+        long[] decoding = reportedDecoding.get();
+        decoding[0] = -1;
+        long allocationStart = threadAllocatedBytes();
+        long start = System.nanoTime();
+        K fitness = assessment.computeFitnessForIndividual(individual);
+        long nanos = System.nanoTime() - start;
+        long allocated = threadAllocatedBytes() - allocationStart;
+        if (decoding[0] < 0) {
+            record(Stage.EVALUATION, nanos, allocated);
+        } else {
+            //the decoded solution is not materialized, allocation of the assessment is attributed to scoring
+            long decodingNanos = Math.min(nanos, decoding[0]);
+            record(Stage.DECODING, decodingNanos, 0);
+            record(Stage.SCORING, nanos - decodingNanos, allocated);
+        }
+        decoding[0] = -1;
+        return fitness;
+    }
+
+    /**
+     * @return assessment recording its evaluations, for assessments used by operators of the run
+     */
+    public <V, T, K extends Comparable<K>> DecodingFitnessAssessmentStrategy<V, T, K> timed(
+            DecodingFitnessAssessmentStrategy<V, T, K> assessment) {
+        return individual -> evaluate(assessment, individual);
+    }
+
+    /**
+     * Report time spent decoding by an assessment which decodes and scores in one step, on the thread running it.
+     * Reports of a single assessment add up.
+     */
+    public static void reportDecoding(long nanos) {
+        long[] decoding = reportedDecoding.get();
+        decoding[0] = Math.max(0, decoding[0]) + nanos;
+    }
+
+    /**
+     * Add a value read at the end of every epoch, e.g. a counter of a component of the run.
+     */
+    public void gauge(String name, Supplier<? extends Number> value) {
+        synchronized (gauges) {
+            gauges.put(name, value);
+        }
+    }
+
+    /**
+     * Take the values of an epoch and start a new one.
+     *
+     * @param epoch      closed epoch
+     * @param millis     duration of the epoch
+     * @param best       best individual of the epoch
+     * @param population population at the end of the epoch
+     */
+    <K extends Comparable<K>> void closeEpoch(int epoch, long millis, IndividualWithAssignedFitness<?, ?, K> best,
+                                              List<? extends IndividualWithAssignedFitness<?, ?, K>> population) {
+        Map<String, Number> values = new LinkedHashMap<>();
+        long evaluationCount = evaluations.sumThenReset();
+        values.put("epoch", epoch);
+        values.put("epochMillis", millis);
+        values.put("evaluations", evaluationCount);
+        values.put("evaluationsPerSecond", millis > 0 ? evaluationCount * 1000.0 / millis : 0.0);
+        values.put("bestFitness", fitness(best));
+        values.put("averageFitness", population.stream().mapToDouble(this::fitness).average().orElse(Double.NaN));
+        for (Stage stage : Stage.values()) {
+            timers[stage.ordinal()].snapshotThenReset(stage.name().toLowerCase(Locale.ROOT), values);
+        }
+        synchronized (gauges) {
+            gauges.forEach((name, value) -> values.put(name, value.get()));
+        }
+        snapshot = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * @return values of the last closed epoch, in a stable order
+     */
+    public Map<String, Number> getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Expose the values of the last closed epoch as attributes of an MBean {@code cz.eoa:type=EvolutionMetrics}.
+     *
+     * @param name name of the run, distinguishes e.g. islands within one process
+     */
+    public void registerMBean(String name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new MBean(),
+                new ObjectName("cz.eoa:type=EvolutionMetrics,name=" + ObjectName.quote(name)));
+    }
+
+    /**
+     * Periodically append the values of the last closed epoch to a file, unless no epoch was closed since the last
+     * dump. A CSV file gets a header when it is created, JSON is written as one object per line.
+     */
+    public synchronized void startDump(Path file, DumpFormat format, long period, TimeUnit unit) {
+        if (dumper != null) {
+            throw new IllegalStateException("Metrics are already dumped");
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> {
+            Map<String, Number> values = snapshot;
+            if (values.isEmpty() || values == dumped) {
+                return;
+            }
+            try {
+                dump(file, format, values);
+                dumped = values;
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Unable to dump metrics", e);
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Stop dumping started by {@link #startDump(Path, DumpFormat, long, TimeUnit)}.
+     */
+    public synchronized void stopDump() {
+        if (dumper != null) {
+            dumper.shutdown();
+            dumper = null;
+        }
+    }
+
+    private static void dump(Path file, DumpFormat format, Map<String, Number> values) throws IOException {
+        boolean header = format == DumpFormat.CSV && !Files.exists(file);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (header) {
+                writer.write(String.join(",", values.keySet()));
+                writer.newLine();
+            }
+            StringJoiner line = format == DumpFormat.CSV ? new StringJoiner(",") : new StringJoiner(",", "{", "}");
+            for (Map.Entry<String, Number> value : values.entrySet()) {
+                String number = isFinite(value.getValue()) ? value.getValue().toString()
+                        : format == DumpFormat.CSV ? "" : "null";
+                line.add(format == DumpFormat.CSV ? number : "\"" + value.getKey() + "\":" + number);
+            }
+            writer.write(line.toString());
+            writer.newLine();
+        }
+    }
+
+    private static boolean isFinite(Number number) {
+        return !(number instanceof Double) || !(((Double) number).isNaN() || ((Double) number).isInfinite());
+    }
+
+    private double fitness(IndividualWithAssignedFitness<?, ?, ?> individual) {
+        if (individual.hasDoubleFitness()) {
+            return individual.getDoubleFitness();
+        }
+        return individual.getFitness() instanceof Number ? ((Number) individual.getFitness()).doubleValue() : Double.NaN;
+    }
+
+    private void record(Stage stage, long nanos, long allocatedBytes) {
+        timers[stage.ordinal()].record(nanos, allocatedBytes);
+        if (stage == Stage.SCORING || stage == Stage.EVALUATION) {
+            evaluations.increment();
+        }
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far, or 0 if the JVM does not tell
+     */
+    private static long threadAllocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean allocationMeasuringThreads() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        return (com.sun.management.ThreadMXBean) threads;
+    }
+
+    /**
+     * Count, total time, allocated bytes and a histogram of time with power of two resolution.
+     */
+    private static class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        Timer() {
+            for (int i = 0; i < buckets.length; ++i) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long duration, long allocated) {
+            count.increment();
+            nanos.add(duration);
+            allocatedBytes.add(allocated);
+            buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, duration)))].increment();
+        }
+
+        void snapshotThenReset(String name, Map<String, Number> values) {
+            long total = count.sumThenReset();
+            long[] histogram = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; ++i) {
+                histogram[i] = buckets[i].sumThenReset();
+            }
+            values.put(name + "Count", total);
+            values.put(name + "Millis", nanos.sumThenReset() / 1e6);
+            values.put(name + "P50Micros", quantile(histogram, total, 0.5) / 1e3);
+            values.put(name + "P99Micros", quantile(histogram, total, 0.99) / 1e3);
+            values.put(name + "AllocatedBytes", allocatedBytes.sumThenReset());
+        }
+
+        /**
+         * @return upper bound of the bucket holding the quantile
+         */
+        private static double quantile(long[] histogram, long total, double quantile) {
+            long rank = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int i = 0; i < histogram.length; ++i) {
+                seen += histogram[i];
+                if (seen >= rank && seen > 0) {
+                    return 1L << i;
+                }
+            }
+            return 0;
+        }
+    }
+
+    private class MBean implements DynamicMBean {
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Number value = snapshot.get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read only");
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Number> values = snapshot;
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                if (values.containsKey(attribute)) {
+                    list.add(new Attribute(attribute, values.get(attribute)));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (Map.Entry<String, Number> value : snapshot.entrySet()) {
+                attributes.add(new MBeanAttributeInfo(value.getKey(), value.getValue().getClass().getName(),
+                        value.getKey(), true, false, false));
+            }
+            return new MBeanInfo(EvolutionMetrics.class.getName(), "Metrics of the last closed epoch",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package cz.eoa.cycle;
+
+import cz.eoa.templates.BestIndividuals;
+import cz.eoa.templates.IndividualWithAssignedFitness;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Logger;
+
+/**
+ * Migration of a single island: every few epochs the best individuals are sent to the target islands and whatever
+ * has arrived in the inbox replaces the worst individuals it is better than. The island never waits for the others.
+ * The inbox holds the migrants of a few migrations of all islands, immigrants arriving at a full inbox are dropped.
+ * How the emigrants reach the inboxes of the targets is up to the subclass.
+ */
+abstract class InboxMigration<V, T, K extends Comparable<K>> implements Migration<V, T, K> {
+    private final static Logger logger = Logger.getLogger(InboxMigration.class.getName());
+    //migrations of all islands the inbox has room for
+    private static final int INBOX_MIGRATIONS = 2;
+
+    final int island;
+    final int islandCount;
+    private final MigrationTopology topology;
+    private final int migrationInterval;
+    final int migrantCount;
+    private final boolean fitnessIsMaximized;
+    private final Comparator<IndividualWithAssignedFitness<V, T, K>> bestFirst;
+    private final BlockingQueue<IndividualWithAssignedFitness<V, T, K>> inbox;
+
+    InboxMigration(int island, int islandCount, MigrationTopology topology, int migrationInterval, int migrantCount,
+                   boolean fitnessIsMaximized) {
+        assert migrationInterval > 0 && migrantCount >= 0;
+        this.island = island;
+        this.islandCount = islandCount;
+        this.topology = topology;
+        this.migrationInterval = migrationInterval;
+        this.migrantCount = migrantCount;
+        this.fitnessIsMaximized = fitnessIsMaximized;
+        this.bestFirst = fitnessIsMaximized ? Comparator.reverseOrder() : Comparator.naturalOrder();
+        this.inbox = new ArrayBlockingQueue<>(Math.max(1, INBOX_MIGRATIONS * migrantCount * islandCount));
+    }
+
+    /**
+     * Put immigrants in the inbox, called by any thread.
+     */
+    void deliver(List<IndividualWithAssignedFitness<V, T, K>> immigrants) {
+        int dropped = 0;
+        for (IndividualWithAssignedFitness<V, T, K> immigrant : immigrants) {
+            if (!inbox.offer(immigrant)) {
+                ++dropped;
+            }
+        }
+        if (dropped > 0) {
+            logger.fine("Inbox of island " + island + " is full, " + dropped + " immigrants dropped");
+        }
+    }
+
+    /**
+     * Hand the emigrants over to the inbox of given island.
+     */
+    abstract void send(int target, List<IndividualWithAssignedFitness<V, T, K>> emigrants);
+
+    @Override
+    public List<IndividualWithAssignedFitness<V, T, K>> migrate(int epoch, List<IndividualWithAssignedFitness<V, T, K>> population) {
+        if (epoch == 0 || epoch % migrationInterval != 0) {
+            return population;
+        }
+        List<IndividualWithAssignedFitness<V, T, K>> emigrants = BestIndividuals.select(population, migrantCount,
+                fitnessIsMaximized);
+        for (int target : topology.targets(island, islandCount)) {
+            send(target, emigrants);
+        }
+
+        List<IndividualWithAssignedFitness<V, T, K>> immigrants = new ArrayList<>();
+        for (IndividualWithAssignedFitness<V, T, K> immigrant; (immigrant = inbox.poll()) != null; ) {
+            immigrants.add(immigrant);
+        }
+        if (immigrants.isEmpty()) {
+            return population;
+        }
+        immigrants.sort(bestFirst);
+        // only as many of the worst individuals as there are immigrants are candidates for replacement
+        List<IndividualWithAssignedFitness<V, T, K>> nextPopulation = new ArrayList<>(population);
+        List<Integer> worstFirst = new ArrayList<>();
+        for (int index : BestIndividuals.selectIndices(population, immigrants.size(), !fitnessIsMaximized)) {
+            worstFirst.add(index);
+        }
+        worstFirst.sort((first, second) -> bestFirst.compare(population.get(second), population.get(first)));
+        // replace the worst individuals, best immigrant first, as long as the immigrant is better
+        int replaced = 0;
+        for (IndividualWithAssignedFitness<V, T, K> immigrant : immigrants) {
+            if (replaced == worstFirst.size()
+                    || bestFirst.compare(immigrant, population.get(worstFirst.get(replaced))) >= 0) {
+                break;
+            }
+            nextPopulation.set(worstFirst.get(replaced), immigrant);
+            ++replaced;
+        }
+        logger.fine("Island " + island + " accepted " + replaced + " of " + immigrants.size() + " immigrants");
+        return nextPopulation;
+    }
+}
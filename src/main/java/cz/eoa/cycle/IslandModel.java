@@ -0,0 +1,70 @@
+package cz.eoa.cycle;
+
+import cz.eoa.configuration.EvolutionConfiguration;
+import cz.eoa.templates.IndividualWithAssignedFitness;
+import cz.eoa.templates.StatisticsPerEpoch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Independent generational runs (islands), each on its own thread, exchanging their best individuals every few
+ * epochs along a {@link MigrationTopology}. Emigrants are handed over through bounded per-island inboxes, so
+ * islands never wait for each other; an island picks up whatever has arrived at its next migration. Immigrants
+ * replace the worst individuals they are better than, fitness of all islands must therefore be comparable.
+ */
+public class IslandModel<V, T, K extends Comparable<K>, L extends StatisticsPerEpoch<V, T, K>> {
+    private final List<EvolutionConfiguration<V, T, K, L>> configurations;
+    private final List<InboxMigration<V, T, K>> migrations = new ArrayList<>();
+
+    /**
+     * @param configurations    configurations of the islands, in generational run mode
+     * @param topology          islands receiving emigrants of each island
+     * @param migrationInterval number of epochs between migrations
+     * @param migrantCount      number of the best individuals sent to each target island
+     */
+    public IslandModel(List<EvolutionConfiguration<V, T, K, L>> configurations, MigrationTopology topology,
+                       int migrationInterval, int migrantCount) {
+        this.configurations = configurations;
+        for (int i = 0; i < configurations.size(); ++i) {
+            migrations.add(new InboxMigration<V, T, K>(i, configurations.size(), topology, migrationInterval,
+                    migrantCount, configurations.get(i).isFitnessIsMaximized()) {
+                @Override
+                void send(int target, List<IndividualWithAssignedFitness<V, T, K>> emigrants) {
+                    migrations.get(target).deliver(emigrants);
+                }
+            });
+        }
+    }
+
+    /**
+     * Run all islands until each of them meets its termination condition.
+     *
+     * @return statistics of every island, in the order of the configurations
+     */
+    public List<List<L>> run() {
+        ExecutorService threads = Executors.newFixedThreadPool(configurations.size());
+        try {
+            List<Future<List<L>>> islands = new ArrayList<>();
+            for (int i = 0; i < configurations.size(); ++i) {
+                int island = i;
+                islands.add(threads.submit(() -> new EvolutionExecutor<>(
+                        configurations.get(island), migrations.get(island)
+                ).run()));
+            }
+            List<List<L>> statistics = new ArrayList<>();
+            for (Future<List<L>> island : islands) {
+                statistics.add(island.get());
+            }
+            return statistics;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the islands", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Island failed", e.getCause());
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+}
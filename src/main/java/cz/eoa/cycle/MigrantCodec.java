@@ -0,0 +1,17 @@
+package cz.eoa.cycle;
+
+import cz.eoa.templates.IndividualWithAssignedFitness;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Binary encoding of evaluated individuals, for migrants sent between processes by {@link SocketMigration} and
+ * for {@link Checkpointing}.
+ */
+public interface MigrantCodec<V, T, K extends Comparable<K>> {
+    void write(IndividualWithAssignedFitness<V, T, K> migrant, DataOutput output) throws IOException;
+
+    IndividualWithAssignedFitness<V, T, K> read(DataInput input) throws IOException;
+}
@@ -0,0 +1,18 @@
+package cz.eoa.cycle;
+
+import cz.eoa.templates.IndividualWithAssignedFitness;
+
+import java.util.List;
+
+/**
+ * Exchange of individuals with other populations, called by {@link EvolutionExecutor} after every epoch of
+ * a generational run.
+ */
+public interface Migration<V, T, K extends Comparable<K>> {
+    /**
+     * @param epoch      epoch which has just finished
+     * @param population population of the epoch, must not be modified
+     * @return population of the next epoch
+     */
+    List<IndividualWithAssignedFitness<V, T, K>> migrate(int epoch, List<IndividualWithAssignedFitness<V, T, K>> population);
+}
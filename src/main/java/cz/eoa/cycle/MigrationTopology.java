@@ -0,0 +1,26 @@
+package cz.eoa.cycle;
+
+import java.util.stream.IntStream;
+
+/**
+ * Islands which receive the emigrants of an island.
+ */
+public interface MigrationTopology {
+    int[] targets(int island, int islandCount);
+
+    /**
+     * Every island sends its emigrants to the next one, the last one to the first one.
+     */
+    static MigrationTopology ring() {
+        return (island, islandCount) -> islandCount > 1 ? new int[]{(island + 1) % islandCount} : new int[0];
+    }
+
+    /**
+     * Every island sends its emigrants to all the other islands.
+     */
+    static MigrationTopology fullyConnected() {
+        return (island, islandCount) -> IntStream.range(0, islandCount)
+                .filter(target -> target != island)
+                .toArray();
+    }
+}
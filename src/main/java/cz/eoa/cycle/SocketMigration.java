@@ -0,0 +1,196 @@
+package cz.eoa.cycle;
+
+import cz.eoa.templates.IndividualWithAssignedFitness;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Migration between islands running in separate processes. Every island listens on its own address and sends
+ * its emigrants to the addresses of the target islands over TCP; there is no coordinator. Each message is
+ * the number of migrants followed by the migrants encoded by a {@link MigrantCodec}.
+ * <p>
+ * Islands may start, crash and restart in any order: connections are opened lazily, a failed send only drops
+ * the emigrants and the connection is retried at the next migration. Emigrants are sent by a background thread,
+ * so an unreachable island does not stall the evolution; emigrants of a migration are dropped while the sends of
+ * the previous ones are still pending.
+ * <p>
+ * A message of more migrants than the migrant count, or a migrant the codec refuses (e.g. a genome of another
+ * shape), closes the connection it came from.
+ */
+public class SocketMigration<V, T, K extends Comparable<K>> extends InboxMigration<V, T, K> implements Closeable {
+    private final static Logger logger = Logger.getLogger(SocketMigration.class.getName());
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+
+    private final List<InetSocketAddress> addresses;
+    private final MigrantCodec<V, T, K> codec;
+    private final ServerSocket serverSocket;
+    //used by the sending thread, closed by the thread closing the migration
+    private final Map<Integer, Connection> connections = new ConcurrentHashMap<>();
+    //sends of the emigrants to a few target islands may be pending, further ones are discarded
+    private final ThreadPoolExecutor sender;
+    private final List<Socket> incoming = new ArrayList<>();
+    private volatile boolean closed = false;
+
+    /**
+     * @param island             index of this island in the addresses
+     * @param addresses          addresses of all islands
+     * @param topology           islands receiving emigrants of each island
+     * @param migrationInterval  number of epochs between migrations
+     * @param migrantCount       number of the best individuals sent to each target island
+     * @param fitnessIsMaximized same as in the configuration of the island
+     * @param codec              binary encoding of the migrants
+     * @throws IOException if the address of this island cannot be bound
+     */
+    public SocketMigration(int island, List<InetSocketAddress> addresses, MigrationTopology topology,
+                           int migrationInterval, int migrantCount, boolean fitnessIsMaximized,
+                           MigrantCodec<V, T, K> codec) throws IOException {
+        super(island, addresses.size(), topology, migrationInterval, migrantCount, fitnessIsMaximized);
+        this.addresses = addresses;
+        this.codec = codec;
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(addresses.get(island));
+        this.sender = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(addresses.size()), runnable -> {
+            Thread thread = new Thread(runnable, "migration-send-" + island);
+            thread.setDaemon(true);
+            return thread;
+        }, (runnable, executor) -> logger.fine("Previous emigrants of island " + island + " not sent yet, dropped"));
+        startDaemon("migration-accept-" + island, this::accept);
+    }
+
+    @Override
+    void send(int target, List<IndividualWithAssignedFitness<V, T, K>> emigrants) {
+        if (!closed) {
+            sender.execute(() -> write(target, emigrants));
+        }
+    }
+
+    private void write(int target, List<IndividualWithAssignedFitness<V, T, K>> emigrants) {
+        try {
+            Connection connection = connections.get(target);
+            if (connection == null) {
+                connection = new Connection(addresses.get(target));
+                connections.put(target, connection);
+            }
+            connection.output.writeInt(emigrants.size());
+            for (IndividualWithAssignedFitness<V, T, K> emigrant : emigrants) {
+                codec.write(emigrant, connection.output);
+            }
+            connection.output.flush();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Island " + target + " is not reachable, emigrants dropped", e);
+            Connection connection = connections.remove(target);
+            if (connection != null) {
+                closeQuietly(connection.socket);
+            }
+        }
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                synchronized (incoming) {
+                    incoming.add(socket);
+                }
+                startDaemon("migration-receive-" + island, () -> receive(socket));
+            } catch (IOException e) {
+                if (!closed) {
+                    logger.log(Level.WARNING, "Accepting of migrants failed", e);
+                }
+            }
+        }
+    }
+
+    private void receive(Socket socket) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (!closed) {
+                int count = input.readInt();
+                if (count < 0 || count > migrantCount) {
+                    throw new IOException("Message of " + count + " migrants, at most " + migrantCount + " expected");
+                }
+                List<IndividualWithAssignedFitness<V, T, K>> immigrants = new ArrayList<>(count);
+                for (int i = 0; i < count; ++i) {
+                    immigrants.add(codec.read(input));
+                }
+                deliver(immigrants);
+            }
+        } catch (EOFException e) {
+            // the sending island has finished or crashed
+        } catch (IOException e) {
+            if (!closed) {
+                logger.log(Level.WARNING, "Receiving of migrants from " + socket.getRemoteSocketAddress()
+                        + " failed, connection closed", e);
+            }
+        } finally {
+            synchronized (incoming) {
+                incoming.remove(socket);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        closeQuietly(serverSocket);
+        // the last emigrants are still sent, unless the target does not take them in time
+        sender.shutdown();
+        try {
+            if (!sender.awaitTermination(2 * CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                sender.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        connections.values().forEach(connection -> closeQuietly(connection.socket));
+        connections.clear();
+        synchronized (incoming) {
+            incoming.forEach(SocketMigration::closeQuietly);
+            incoming.clear();
+        }
+    }
+
+    private static void startDaemon(String name, Runnable runnable) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // nothing to do
+        }
+    }
+
+    private static class Connection {
+        private final Socket socket;
+        private final DataOutputStream output;
+
+        private Connection(InetSocketAddress address) throws IOException {
+            this.socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+                this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            } catch (IOException e) {
+                closeQuietly(socket);
+                throw e;
+            }
+        }
+    }
+}
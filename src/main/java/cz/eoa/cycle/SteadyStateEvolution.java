@@ -0,0 +1,307 @@
+package cz.eoa.cycle;
+
+import cz.eoa.configuration.EvolutionConfiguration;
+import cz.eoa.templates.Individual;
+import cz.eoa.templates.IndividualWithAssignedFitness;
+import cz.eoa.templates.StatisticsPerEpoch;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Steady-state run: workers repeatedly select parents, breed and evaluate children and put each child in place of
+ * the worst individual (or of the loser of a replacement tournament) if it is not worse. There are no barriers
+ * between epochs, an epoch only closes the statistics after every population size of bred children, counting also
+ * children dropped without evaluation for being identical to their parent. Without a replacement tournament,
+ * the population is kept as a binary heap with the worst individual first, so a replacement takes logarithmic time.
+ * Replacement and fitness tweaking strategies are not used in this mode.
+ */
+class SteadyStateEvolution<V, T, K extends Comparable<K>, L extends StatisticsPerEpoch<V, T, K>> {
+    final EvolutionConfiguration<V, T, K, L> configuration;
+    private final static Logger logger = Logger.getLogger(SteadyStateEvolution.class.getName());
+
+    //guarded by this
+    private final List<IndividualWithAssignedFitness<V, T, K>> population = new ArrayList<>();
+    private final List<L> epochStatistics = new ArrayList<>();
+    private int epoch = 0;
+    private int fitnessEvaluations = 0;
+    private int discardedChildren = 0;
+    private long epochStart;
+    private volatile boolean terminated = false;
+
+    SteadyStateEvolution(EvolutionConfiguration<V, T, K, L> configuration) {
+        if (configuration.getFitnessTweakingStrategy().isPresent()) {
+            throw new IllegalArgumentException("Fitness tweaking is not supported in steady-state mode");
+        }
+        if (configuration.getProgressiveFitnessAssessment().isPresent()) {
+            throw new IllegalArgumentException("Progressive fitness assessment is supported only in generational mode");
+        }
+        if (configuration.getEstimatingFitnessAssessment().isPresent()) {
+            throw new IllegalArgumentException("Estimated fitness is supported only in generational mode");
+        }
+        if (configuration.getCheckpointing().isPresent()) {
+            throw new IllegalArgumentException("Checkpointing is supported only in generational mode");
+        }
+        if (!configuration.getCrossover().isPresent() && !configuration.getMutation().isPresent()) {
+            throw new IllegalArgumentException("Steady-state mode needs crossover or mutation");
+        }
+        this.configuration = configuration;
+    }
+
+    /**
+     * @param pool pool running the parallel work
+     */
+    List<L> run(ForkJoinPool pool) {
+        epochStart = System.currentTimeMillis();
+        if (configuration.isParallel()) {
+            population.addAll(pool.submit(() -> IntStream.range(0, configuration.getPopulationSize()).parallel()
+                    .mapToObj(integer -> evaluate(configuration.getPopulationInitialization().initialize()))
+                    .collect(Collectors.toList())).join());
+        } else {
+            for (int i = 0; i < configuration.getPopulationSize(); ++i) {
+                population.add(evaluate(configuration.getPopulationInitialization().initialize()));
+            }
+        }
+        synchronized (this) {
+            if (configuration.getReplacementTournamentSize() <= 0) {
+                for (int i = population.size() / 2 - 1; i >= 0; --i) {
+                    siftDown(i);
+                }
+            }
+            fitnessEvaluations = population.size();
+            closeEpoch();
+        }
+
+        evolve(pool);
+        return epochStatistics;
+    }
+
+    /**
+     * Breed until the termination condition is met.
+     */
+    void evolve(ForkJoinPool pool) {
+        if (configuration.isParallel()) {
+            List<ForkJoinTask<?>> workers = new ArrayList<>();
+            for (int i = 0; i < pool.getParallelism(); ++i) {
+                workers.add(pool.submit(this::breed));
+            }
+            workers.forEach(ForkJoinTask::join);
+        } else {
+            breed();
+        }
+    }
+
+    private void breed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (!terminated) {
+            List<IndividualWithAssignedFitness<V, T, K>> parents = selectParents();
+            for (Individual<V, T> child : createChildren(parents.get(0), parents.get(1), random)) {
+                if (!insert(evaluate(child), random)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    synchronized List<IndividualWithAssignedFitness<V, T, K>> selectParents() {
+        long start = start(EvolutionMetrics.Stage.SELECTION);
+        List<IndividualWithAssignedFitness<V, T, K>> pool = Collections.unmodifiableList(population);
+        IndividualWithAssignedFitness<V, T, K> firstParent = configuration.getSelector().select(pool);
+        IndividualWithAssignedFitness<V, T, K> secondParent = EvolutionExecutor.selectSecondParent(
+                configuration.getSelector(), pool, firstParent);
+        record(EvolutionMetrics.Stage.SELECTION, start);
+        return Arrays.asList(firstParent, secondParent);
+    }
+
+    /**
+     * @return children to be evaluated, without those identical to their parent
+     */
+    List<Individual<V, T>> createChildren(IndividualWithAssignedFitness<V, T, K> firstParent,
+                                          IndividualWithAssignedFitness<V, T, K> secondParent,
+                                          ThreadLocalRandom random) {
+        List<Individual<V, T>> children = new ArrayList<>(2);
+        int discarded = 0;
+        if (configuration.getCrossover().isPresent() && random.nextDouble() <= configuration.getProbabilityOfCrossover()) {
+            long start = start(EvolutionMetrics.Stage.CROSSOVER);
+            List<Individual<V, T>> offspring = configuration.getCrossover().get()
+                    .crossover(firstParent.getIndividual(), secondParent.getIndividual());
+            record(EvolutionMetrics.Stage.CROSSOVER, start);
+            for (Individual<V, T> child : offspring) {
+                if (configuration.getMutation().isPresent()) {
+                    Optional<Individual<V, T>> mutated = mutate(child);
+                    if (mutated.isPresent()) {
+                        children.add(mutated.get());
+                    } else {
+                        ++discarded;
+                    }
+                } else {
+                    children.add(child);
+                }
+            }
+        } else if (configuration.getMutation().isPresent()) {
+            for (IndividualWithAssignedFitness<V, T, K> parent : Arrays.asList(firstParent, secondParent)) {
+                Optional<Individual<V, T>> mutated = mutate(parent.getIndividual());
+                if (mutated.isPresent() && !mutated.get().equals(parent.getIndividual())) {
+                    children.add(mutated.get());
+                } else {
+                    ++discarded;
+                }
+            }
+        }
+        if (discarded > 0) {
+            discard(discarded);
+        }
+        return children;
+    }
+
+    /**
+     * Count children dropped without evaluation towards the epoch, so that epochs close and the run terminates even
+     * when no child is worth evaluating (e.g. at a low mutation probability).
+     */
+    private synchronized void discard(int count) {
+        if (terminated) {
+            return;
+        }
+        discardedChildren += count;
+        if (fitnessEvaluations + discardedChildren >= configuration.getPopulationSize()) {
+            closeEpoch();
+        }
+    }
+
+    /**
+     * Put an evaluated child in the population, closing the epoch if due.
+     *
+     * @return false if the run has terminated
+     */
+    synchronized boolean insert(IndividualWithAssignedFitness<V, T, K> child, ThreadLocalRandom random) {
+        if (terminated) {
+            return false;
+        }
+        if (configuration.getReplacementTournamentSize() <= 0) {
+            if (compare(child, population.get(0)) >= 0) {
+                population.set(0, child);
+                siftDown(0);
+            }
+        } else {
+            int replaced = selectLoser(random);
+            if (compare(child, population.get(replaced)) >= 0) {
+                population.set(replaced, child);
+            }
+        }
+        if (++fitnessEvaluations + discardedChildren >= configuration.getPopulationSize()) {
+            closeEpoch();
+        }
+        return !terminated;
+    }
+
+    boolean isTerminated() {
+        return terminated;
+    }
+
+    void terminate() {
+        terminated = true;
+    }
+
+    /**
+     * Restore the heap order of the population below given index, the worst individual first. Guarded by this.
+     */
+    private void siftDown(int index) {
+        IndividualWithAssignedFitness<V, T, K> sifted = population.get(index);
+        int size = population.size();
+        for (int child = 2 * index + 1; child < size; child = 2 * index + 1) {
+            if (child + 1 < size && compare(population.get(child + 1), population.get(child)) < 0) {
+                ++child;
+            }
+            if (compare(population.get(child), sifted) >= 0) {
+                break;
+            }
+            population.set(index, population.get(child));
+            index = child;
+        }
+        population.set(index, sifted);
+    }
+
+    /**
+     * @return index of the loser of a replacement tournament, guarded by this
+     */
+    private int selectLoser(ThreadLocalRandom random) {
+        int loser = random.nextInt(population.size());
+        for (int i = 0; i < configuration.getReplacementTournamentSize(); ++i) {
+            int candidate = random.nextInt(population.size());
+            if (compare(population.get(candidate), population.get(loser)) < 0) {
+                loser = candidate;
+            }
+        }
+        return loser;
+    }
+
+    /**
+     * Guarded by this.
+     */
+    private void closeEpoch() {
+        List<IndividualWithAssignedFitness<V, T, K>> snapshot = new ArrayList<>(population);
+        IndividualWithAssignedFitness<V, T, K> best = snapshot.get(0);
+        for (IndividualWithAssignedFitness<V, T, K> individual : snapshot) {
+            if (compare(individual, best) > 0) {
+                best = individual;
+            }
+        }
+        epochStatistics.add(configuration.getStatisticsCreation().returnStatistics(epoch,
+                System.currentTimeMillis() - epochStart, fitnessEvaluations, best,
+                Collections.unmodifiableList(snapshot)));
+        if (configuration.getMetrics().isPresent()) {
+            configuration.getMetrics().get().closeEpoch(epoch, System.currentTimeMillis() - epochStart, best, snapshot);
+        }
+        logger.info(epochStatistics.get(epochStatistics.size() - 1).getSummary());
+        ++epoch;
+        fitnessEvaluations = 0;
+        discardedChildren = 0;
+        epochStart = System.currentTimeMillis();
+        terminated = !configuration.getTerminationCondition().shouldTerminate(epochStatistics);
+    }
+
+    /**
+     * @return positive if the first individual is better than the second one
+     */
+    private int compare(IndividualWithAssignedFitness<V, T, K> first, IndividualWithAssignedFitness<V, T, K> second) {
+        return configuration.isFitnessIsMaximized() ? first.compareTo(second) : second.compareTo(first);
+    }
+
+    IndividualWithAssignedFitness<V, T, K> evaluate(Individual<V, T> individual) {
+        if (configuration.getDecodingFitnessAssessment().isPresent()) {
+            K fitness = configuration.getMetrics().isPresent()
+                    ? configuration.getMetrics().get().evaluate(configuration.getDecodingFitnessAssessment().get(), individual)
+                    : configuration.getDecodingFitnessAssessment().get().computeFitnessForIndividual(individual);
+            return new IndividualWithAssignedFitness<>(individual, fitness);
+        }
+        long start = start(EvolutionMetrics.Stage.DECODING);
+        T decoded = individual.decode(configuration.getDecoding());
+        record(EvolutionMetrics.Stage.DECODING, start);
+        long scoringStart = start(EvolutionMetrics.Stage.SCORING);
+        K fitness = configuration.getFitnessAssessment().computeFitnessForIndividual(decoded);
+        record(EvolutionMetrics.Stage.SCORING, scoringStart);
+        return new IndividualWithAssignedFitness<>(individual, fitness);
+    }
+
+    private Optional<Individual<V, T>> mutate(Individual<V, T> individual) {
+        long start = start(EvolutionMetrics.Stage.MUTATION);
+        Optional<Individual<V, T>> mutated = configuration.getMutation().get().mutation(individual);
+        record(EvolutionMetrics.Stage.MUTATION, start);
+        return mutated;
+    }
+
+    private long start(EvolutionMetrics.Stage stage) {
+        return configuration.getMetrics().isPresent() ? configuration.getMetrics().get().start(stage) : 0;
+    }
+
+    private void record(EvolutionMetrics.Stage stage, long start) {
+        if (configuration.getMetrics().isPresent()) {
+            configuration.getMetrics().get().stop(stage, start);
+        }
+    }
+}
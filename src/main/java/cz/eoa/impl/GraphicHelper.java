@@ -78,6 +78,29 @@ public final class GraphicHelper {
         return (0xff << 24) + (red << 16) + (green << 8) + blue;
     }
 
+    /**
+     * Convert given colour parts to a single ARGB int.
+     *
+     * @param alpha alpha channel (0-255)
+     * @param red   red part (0-255)
+     * @param green green part (0-255)
+     * @param blue  blue part (0-255)
+     * @return 32 bit ARGB colour
+     */
+    public static int convertToARGB(int alpha, int red, int green, int blue) {
+        return (alpha << 24) + (red << 16) + (green << 8) + blue;
+    }
+
+    /**
+     * Convert a colour part given as a float the same way as {@link java.awt.Color#Color(float, float, float, float)}.
+     *
+     * @param value colour part (0.0-1.0)
+     * @return colour part (0-255)
+     */
+    public static int toColourPart(float value) {
+        return (int) (value * 255 + 0.5);
+    }
+
     /**
      * Calculate the distance between two points.
      *
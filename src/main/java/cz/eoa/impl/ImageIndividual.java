@@ -3,16 +3,52 @@ package cz.eoa.impl;
 import cz.eoa.templates.Individual;
 
 import java.awt.image.BufferedImage;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.BitSet;
 
 /**
+ * Besides the genes, an individual may remember the individual it was derived from together with the indices of
+ * the genes that differ, and the per-tile differences computed when it was evaluated. This allows
+ * {@link cz.eoa.impl.function.IncrementalImageFitness} to re-score only the changed regions of the image.
+ * The differences are tagged with the assessment which computed them, as they hold only for its target image and
+ * tiles; another assessment (e.g. of another island the individual migrated to) sees the individual as not evaluated.
+ *
  * @author Ondřej Kratochvíl
  */
-public class ImageIndividual extends Individual<List<Polygon>, BufferedImage> {
+public class ImageIndividual extends Individual<PolygonGenome, BufferedImage> {
 
-    public ImageIndividual(List<Polygon> genes) {
+    private volatile ImageIndividual origin;
+    private volatile BitSet changedGenes;
+    private volatile TileDiffs tileDiffs;
+
+    public ImageIndividual(PolygonGenome genes) {
+        super(genes);
+    }
+
+    /**
+     * Create an individual derived from given one. If the origin has not been evaluated yet, the lineage is
+     * collapsed to the origin's own origin, so that the changes are always relative to an evaluated individual.
+     *
+     * @param genes        genes of the new individual
+     * @param origin       individual the genes were derived from
+     * @param changedGenes indices of the genes which may differ from the origin
+     */
+    public ImageIndividual(PolygonGenome genes, Individual<PolygonGenome, BufferedImage> origin, BitSet changedGenes) {
         super(genes);
+        if (origin instanceof ImageIndividual) {
+            ImageIndividual imageOrigin = (ImageIndividual) origin;
+            // read the lineage only once, the origin may be evaluated concurrently
+            ImageIndividual originsOrigin = imageOrigin.origin;
+            BitSet originsChangedGenes = imageOrigin.changedGenes;
+            if (imageOrigin.tileDiffs != null) {
+                this.origin = imageOrigin;
+                this.changedGenes = changedGenes;
+            } else if (originsOrigin != null && originsChangedGenes != null) {
+                BitSet changed = (BitSet) originsChangedGenes.clone();
+                changed.or(changedGenes);
+                this.origin = originsOrigin;
+                this.changedGenes = changed;
+            }
+        }
     }
 
     /**
@@ -21,9 +57,71 @@ public class ImageIndividual extends Individual<List<Polygon>, BufferedImage> {
      * @param other instance from which the data should be deep copied.
      */
     public ImageIndividual(ImageIndividual other) {
-        super(other.getGenes().stream()
-                .map(Polygon::new)  // deep copy
-                .collect(Collectors.toList())
-        );
+        super(new PolygonGenome(other.getGenes()));
+    }
+
+    /**
+     * Find the genes of a derived individual that differ from the original ones.
+     *
+     * @param originalGenes genes of the origin
+     * @param derivedGenes  genes of the derived individual, of the same size
+     * @return indices of the genes which differ
+     */
+    public static BitSet findChangedGenes(PolygonGenome originalGenes, PolygonGenome derivedGenes) {
+        assert originalGenes.size() == derivedGenes.size();
+        BitSet changedGenes = new BitSet(derivedGenes.size());
+        for (int i = 0; i < derivedGenes.size(); ++i) {
+            if (!derivedGenes.geneEquals(originalGenes, i)) {
+                changedGenes.set(i);
+            }
+        }
+        return changedGenes;
+    }
+
+    /**
+     * @return evaluated individual this one was derived from, or null if unknown or already evaluated
+     */
+    public ImageIndividual getOrigin() {
+        return origin;
+    }
+
+    /**
+     * @return indices of the genes which may differ from the origin, or null if there is no origin
+     */
+    public BitSet getChangedGenes() {
+        return changedGenes;
+    }
+
+    /**
+     * @param assessment assessment asking for the differences
+     * @return squared differences against the target image summed per tile, or null if not evaluated yet by given
+     * assessment
+     */
+    public long[] getTileDiffs(Object assessment) {
+        TileDiffs diffs = tileDiffs;
+        return diffs != null && diffs.assessment == assessment ? diffs.values : null;
+    }
+
+    /**
+     * Store the result of the evaluation and drop the lineage, so that evaluated individuals do not keep
+     * their ancestors alive.
+     *
+     * @param assessment assessment which computed the differences
+     * @param tileDiffs  squared differences against the target image summed per tile
+     */
+    public void setTileDiffs(Object assessment, long[] tileDiffs) {
+        this.tileDiffs = new TileDiffs(assessment, tileDiffs);
+        this.origin = null;
+        this.changedGenes = null;
+    }
+
+    private static class TileDiffs {
+        private final Object assessment;
+        private final long[] values;
+
+        private TileDiffs(Object assessment, long[] values) {
+            this.assessment = assessment;
+            this.values = values;
+        }
     }
 }
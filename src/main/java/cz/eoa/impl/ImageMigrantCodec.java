@@ -0,0 +1,45 @@
+package cz.eoa.impl;
+
+import cz.eoa.cycle.MigrantCodec;
+import cz.eoa.templates.IndividualWithAssignedFitness;
+
+import java.awt.image.BufferedImage;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Migrant as its fitness followed by the genome in the form of {@link PolygonGenome#writeTo(DataOutput)}. Only
+ * genomes of the shape of this run are read, so that a malformed or foreign message is refused before its data are
+ * allocated.
+ *
+ * @author Ondřej Kratochvíl
+ */
+public class ImageMigrantCodec implements MigrantCodec<PolygonGenome, BufferedImage, Double> {
+
+    private final int polygonCount;
+    private final int vertexCount;
+
+    /**
+     * @param polygonCount number of polygons of the genomes
+     * @param vertexCount  number of vertices of every polygon
+     */
+    public ImageMigrantCodec(int polygonCount, int vertexCount) {
+        this.polygonCount = polygonCount;
+        this.vertexCount = vertexCount;
+    }
+
+    @Override
+    public void write(IndividualWithAssignedFitness<PolygonGenome, BufferedImage, Double> migrant, DataOutput output)
+            throws IOException {
+        output.writeDouble(migrant.getFitness());
+        migrant.getGenes().writeTo(output);
+    }
+
+    @Override
+    public IndividualWithAssignedFitness<PolygonGenome, BufferedImage, Double> read(DataInput input) throws IOException {
+        double fitness = input.readDouble();
+        return new IndividualWithAssignedFitness<>(new ImageIndividual(
+                PolygonGenome.readFrom(input, polygonCount, vertexCount)), fitness);
+    }
+}
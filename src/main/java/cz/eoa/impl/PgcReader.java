@@ -0,0 +1,164 @@
+package cz.eoa.impl;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Streaming reader of the format written by {@link PgcWriter}.
+ *
+ * @author Ondřej Kratochvíl
+ */
+public class PgcReader implements Closeable {
+
+    private final int version;
+    private final int width;
+    private final int height;
+    private final boolean hasAlpha;
+    private final int polygonCount;
+    private final int vertexCount;
+    private final int xBits;
+    private final int yBits;
+    private InputStream body;
+    private long bits;
+    private int bitCount;
+    private int remaining;
+
+    /**
+     * Read the header, the polygons are to be read by {@link #readPolygon(PolygonGenome, int)}.
+     *
+     * @param input source, closed by {@link #close()}
+     * @throws IOException if reading fails or the input is not in the format
+     */
+    public PgcReader(InputStream input) throws IOException {
+        DataInputStream header = new DataInputStream(input);
+        byte[] magic = new byte[PgcWriter.MAGIC.length];
+        header.readFully(magic);
+        this.version = header.readUnsignedByte();
+        if (!Arrays.equals(magic, PgcWriter.MAGIC) || version != PgcWriter.VERSION) {
+            throw new IOException("Not a polygon image of a supported version");
+        }
+        int flags = header.readUnsignedByte();
+        this.hasAlpha = (flags & PgcWriter.FLAG_ALPHA) != 0;
+        this.width = header.readUnsignedShort();
+        this.height = header.readUnsignedShort();
+        this.polygonCount = header.readInt();
+        this.vertexCount = header.readUnsignedByte();
+        if (width == 0 || height == 0 || polygonCount < 0 || polygonCount > PolygonGenome.MAX_POLYGONS
+                || vertexCount == 0 || vertexCount > PolygonGenome.MAX_VERTICES) {
+            throw new IOException("Malformed polygon image header");
+        }
+        this.xBits = PgcWriter.bitsFor(width - 1);
+        this.yBits = PgcWriter.bitsFor(height - 1);
+        this.remaining = polygonCount;
+        this.body = (flags & PgcWriter.FLAG_DEFLATE) != 0
+                ? new InflaterInputStream(input, new Inflater(), 4096)
+                : new BufferedInputStream(input);
+    }
+
+    /**
+     * Read a whole genome from a stream, which is closed afterwards.
+     */
+    public static PolygonGenome read(InputStream input) throws IOException {
+        try (PgcReader reader = new PgcReader(input)) {
+            return reader.readGenome();
+        }
+    }
+
+    /**
+     * @return genome of all remaining polygons
+     * @throws IOException if reading fails or the input holds fewer polygons than declared
+     */
+    public PolygonGenome readGenome() throws IOException {
+        //the polygons are buffered first, so that a truncated input fails before the genome is allocated
+        long bodyBits = (long) remaining * (32 + vertexCount * (xBits + yBits)) - bitCount;
+        body = new SequenceInputStream(new ByteArrayInputStream(readBody((int) ((bodyBits + 7) / 8))), body);
+        PolygonGenome genes = new PolygonGenome(polygonCount, vertexCount);
+        for (int i = polygonCount - remaining; i < polygonCount; ++i) {
+            readPolygon(genes, i);
+        }
+        return genes;
+    }
+
+    /**
+     * Read the next polygon.
+     *
+     * @param target  genome of {@link #getVertexCount()} vertices per polygon
+     * @param polygon index at which the polygon should be stored
+     * @throws IOException if reading fails or all polygons have been read
+     */
+    public void readPolygon(PolygonGenome target, int polygon) throws IOException {
+        if (remaining == 0) {
+            throw new EOFException("All polygons have been read");
+        }
+        --remaining;
+        target.setColour(polygon, (int) readBits(32));
+        for (int i = 0; i < vertexCount; ++i) {
+            int x = (int) readBits(xBits);
+            int y = (int) readBits(yBits);
+            target.setVertex(polygon, i, x, y);
+        }
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean hasAlpha() {
+        return hasAlpha;
+    }
+
+    public int getPolygonCount() {
+        return polygonCount;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+
+    /**
+     * @return given number of bytes of the body, buffered as they arrive
+     * @throws EOFException if the body is shorter
+     */
+    private byte[] readBody(int length) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.min(length, 4096));
+        byte[] chunk = new byte[4096];
+        while (buffer.size() < length) {
+            int read = body.read(chunk, 0, Math.min(chunk.length, length - buffer.size()));
+            if (read < 0) {
+                throw new EOFException("Polygon image is truncated, " + length + " bytes of polygons expected");
+            }
+            buffer.write(chunk, 0, read);
+        }
+        return buffer.toByteArray();
+    }
+
+    private long readBits(int count) throws IOException {
+        while (bitCount < count) {
+            int next = body.read();
+            if (next < 0) {
+                throw new EOFException("Polygon image is truncated");
+            }
+            bits = (bits << 8) | next;
+            bitCount += 8;
+        }
+        bitCount -= count;
+        long value = (bits >>> bitCount) & ((1L << count) - 1);
+        bits &= (1L << bitCount) - 1;
+        return value;
+    }
+}
@@ -0,0 +1,144 @@
+package cz.eoa.impl;
+
+import java.io.*;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Streaming writer of the compact polygon image format ({@code .pgc}). The file starts with a header
+ * <pre>
+ * "PGC", byte version, byte flags, u16 width, u16 height, int polygon count, u8 vertex count
+ * </pre>
+ * followed by a bit stream of the polygons in drawing order, each as its 32 bit ARGB colour and the vertices with
+ * x and y quantized to the number of bits needed for {@code width - 1} and {@code height - 1}. With
+ * {@link #FLAG_DEFLATE}, the bit stream is additionally deflated.
+ * <p>
+ * Quantization clamps coordinates to the image, which is lossless for genomes produced by the operators of this
+ * project, as they keep all vertices inside of the image.
+ *
+ * @author Ondřej Kratochvíl
+ */
+public class PgcWriter implements Closeable {
+
+    static final byte[] MAGIC = {'P', 'G', 'C'};
+    static final int VERSION = 1;
+    /**
+     * The bit stream is compressed by deflate.
+     */
+    public static final int FLAG_DEFLATE = 1;
+    /**
+     * The image should be decoded with an alpha channel.
+     */
+    public static final int FLAG_ALPHA = 2;
+
+    private final int width;
+    private final int height;
+    private final int vertexCount;
+    private final int xBits;
+    private final int yBits;
+    private final OutputStream body;
+    private final DeflaterOutputStream deflater;
+    private long bits;
+    private int bitCount;
+    private int remaining;
+
+    /**
+     * Write the header, the polygons are to be written by {@link #writePolygon(PolygonGenome, int)}.
+     *
+     * @param output       destination, closed by {@link #close()}
+     * @param width        width of the image
+     * @param height       height of the image
+     * @param hasAlpha     whether the image has an alpha channel
+     * @param polygonCount number of polygons to be written
+     * @param vertexCount  number of vertices of every polygon
+     * @param deflate      whether to compress the bit stream
+     * @throws IOException if writing fails
+     */
+    public PgcWriter(OutputStream output, int width, int height, boolean hasAlpha, int polygonCount, int vertexCount,
+                     boolean deflate) throws IOException {
+        if (width <= 0 || width > 0xffff || height <= 0 || height > 0xffff || vertexCount <= 0 || vertexCount > 0xff) {
+            throw new IllegalArgumentException("Image or polygons too large for the format");
+        }
+        this.width = width;
+        this.height = height;
+        this.vertexCount = vertexCount;
+        this.xBits = bitsFor(width - 1);
+        this.yBits = bitsFor(height - 1);
+        this.remaining = polygonCount;
+        DataOutputStream header = new DataOutputStream(output);
+        header.write(MAGIC);
+        header.writeByte(VERSION);
+        header.writeByte((deflate ? FLAG_DEFLATE : 0) | (hasAlpha ? FLAG_ALPHA : 0));
+        header.writeShort(width);
+        header.writeShort(height);
+        header.writeInt(polygonCount);
+        header.writeByte(vertexCount);
+        if (deflate) {
+            this.deflater = new DeflaterOutputStream(output, new Deflater(Deflater.BEST_COMPRESSION), 4096);
+            this.body = deflater;
+        } else {
+            this.deflater = null;
+            this.body = new BufferedOutputStream(output);
+        }
+    }
+
+    /**
+     * Write a whole genome into a stream.
+     */
+    public static void write(OutputStream output, PolygonGenome genes, int width, int height, boolean hasAlpha,
+                             boolean deflate) throws IOException {
+        try (PgcWriter writer = new PgcWriter(output, width, height, hasAlpha, genes.size(), genes.getVertexCount(), deflate)) {
+            for (int i = 0; i < genes.size(); ++i) {
+                writer.writePolygon(genes, i);
+            }
+        }
+    }
+
+    public void writePolygon(PolygonGenome genes, int polygon) throws IOException {
+        if (genes.getVertexCount() != vertexCount || remaining == 0) {
+            throw new IllegalStateException("Polygon does not match the header");
+        }
+        --remaining;
+        writeBits(genes.getColour(polygon) & 0xffffffffL, 32);
+        for (int i = 0; i < vertexCount; ++i) {
+            writeBits(clamp(genes.getX(polygon, i), width - 1), xBits);
+            writeBits(clamp(genes.getY(polygon, i), height - 1), yBits);
+        }
+    }
+
+    /**
+     * Flush the last bits and close the destination.
+     */
+    @Override
+    public void close() throws IOException {
+        if (remaining != 0) {
+            body.close();
+            throw new IllegalStateException(remaining + " polygons announced in the header were not written");
+        }
+        if (bitCount > 0) {
+            body.write((int) (bits << (8 - bitCount)));
+        }
+        if (deflater != null) {
+            deflater.finish();
+        }
+        body.close();
+    }
+
+    static int bitsFor(int maxValue) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(maxValue));
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(max, value));
+    }
+
+    private void writeBits(long value, int count) throws IOException {
+        bits = (bits << count) | value;
+        bitCount += count;
+        while (bitCount >= 8) {
+            bitCount -= 8;
+            body.write((int) (bits >>> bitCount));
+        }
+        bits &= (1L << bitCount) - 1;
+    }
+}
@@ -0,0 +1,319 @@
+package cz.eoa.impl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Genes of an image individual, all polygons with the same number of vertices stored in a single {@code int[]}.
+ * Every polygon (gene) occupies {@code 1 + 2 * vertexCount} consecutive ints: the ARGB colour followed by
+ * the x and y coordinates of its vertices. Copying a genome is a single {@link System#arraycopy}.
+ * <p>
+ * Genomes are mutable so that operators can fill in a fresh copy, but must not be modified once they are handed
+ * over to an {@link cz.eoa.templates.Individual}.
+ * <p>
+ * The content hash ({@link #hash64()}) is Zobrist-style: the XOR of the hashes of the genes, each mixed with its
+ * position. Modifications only mark the gene stale, and the hash is updated for the stale genes when it is asked for.
+ * A copy takes over the hashes, so a mutated copy re-hashes only the genes that were mutated. Equality compares
+ * the hashes first and the data only if they match.
+ *
+ * @author Ondřej Kratochvíl
+ */
+public final class PolygonGenome {
+
+    /**
+     * Largest number of polygons of a genome read from a stream, so that a malformed header cannot ask for an
+     * arbitrarily large allocation.
+     */
+    public static final int MAX_POLYGONS = 1 << 16;
+    /**
+     * Largest number of vertices of a polygon of a genome read from a stream.
+     */
+    public static final int MAX_VERTICES = 0xff;
+    private static final int INT_COORDINATES = 0;
+    private static final int SHORT_COORDINATES = 1;
+    //polygons allocated before the data of a read genome start arriving
+    private static final int READ_CHUNK_POLYGONS = 256;
+
+    private final int polygonCount;
+    private final int vertexCount;
+    private final int stride;
+    private final int[] data;
+    //hash of every gene and the XOR of them, up to date for the genes which are not stale
+    private final long[] geneHashes;
+    private final boolean[] staleGenes;
+    private long hash;
+    private volatile boolean stale;
+
+    public PolygonGenome(int polygonCount, int vertexCount) {
+        this(polygonCount, vertexCount, new int[polygonCount * (1 + 2 * vertexCount)]);
+    }
+
+    private PolygonGenome(int polygonCount, int vertexCount, int[] data) {
+        assert polygonCount >= 0 && vertexCount > 0 && data.length == polygonCount * (1 + 2 * vertexCount);
+        this.polygonCount = polygonCount;
+        this.vertexCount = vertexCount;
+        this.stride = 1 + 2 * vertexCount;
+        this.data = data;
+        this.geneHashes = new long[polygonCount];
+        this.staleGenes = new boolean[polygonCount];
+        Arrays.fill(staleGenes, true);
+        this.stale = true;
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param other instance from which the data should be copied
+     */
+    public PolygonGenome(PolygonGenome other) {
+        this.polygonCount = other.polygonCount;
+        this.vertexCount = other.vertexCount;
+        this.stride = other.stride;
+        this.data = other.data.clone();
+        synchronized (other) {
+            this.geneHashes = other.geneHashes.clone();
+            this.staleGenes = other.staleGenes.clone();
+            this.hash = other.hash;
+            this.stale = other.stale;
+        }
+    }
+
+    /**
+     * @return number of polygons (genes)
+     */
+    public int size() {
+        return polygonCount;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * @return number of ints occupied by a single polygon
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * Direct access to the backing array, for renderers and encoders.
+     *
+     * @return backing array, must not be modified once the genome is in use
+     */
+    public int[] getData() {
+        return data;
+    }
+
+    /**
+     * @param polygon index of the polygon
+     * @return position of the polygon's colour in {@link #getData()}, its vertices follow
+     */
+    public int offset(int polygon) {
+        return polygon * stride;
+    }
+
+    public int getColour(int polygon) {
+        return data[polygon * stride];
+    }
+
+    public void setColour(int polygon, int argb) {
+        data[polygon * stride] = argb;
+        markStale(polygon);
+    }
+
+    public int getX(int polygon, int vertex) {
+        return data[polygon * stride + 1 + 2 * vertex];
+    }
+
+    public int getY(int polygon, int vertex) {
+        return data[polygon * stride + 2 + 2 * vertex];
+    }
+
+    public void setVertex(int polygon, int vertex, int x, int y) {
+        int position = polygon * stride + 1 + 2 * vertex;
+        data[position] = x;
+        data[position + 1] = y;
+        markStale(polygon);
+    }
+
+    /**
+     * Copy a gene from another genome of the same shape to the same position in this one.
+     *
+     * @param source  genome to copy from
+     * @param polygon index of the polygon
+     */
+    public void copyGene(PolygonGenome source, int polygon) {
+        assert source.stride == stride;
+        System.arraycopy(source.data, polygon * stride, data, polygon * stride, stride);
+        markStale(polygon);
+    }
+
+    /**
+     * Copy a range of genes from another genome of the same shape to the same positions in this one.
+     *
+     * @param source genome to copy from
+     * @param from   index of the first polygon
+     * @param to     index after the last polygon
+     */
+    public void copyGenes(PolygonGenome source, int from, int to) {
+        assert source.stride == stride;
+        System.arraycopy(source.data, from * stride, data, from * stride, (to - from) * stride);
+        for (int i = from; i < to; ++i) {
+            markStale(i);
+        }
+    }
+
+    /**
+     * @param other   genome of the same shape
+     * @param polygon index of the polygon
+     * @return true if the polygon at given index is the same in both genomes
+     */
+    public boolean geneEquals(PolygonGenome other, int polygon) {
+        assert other.stride == stride;
+        for (int i = polygon * stride, end = i + stride; i < end; ++i) {
+            if (data[i] != other.data[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return 64 bit hash of the content, e.g. a key of a fitness cache
+     */
+    public long hash64() {
+        if (stale) {
+            synchronized (this) {
+                if (stale) {
+                    for (int i = 0; i < polygonCount; ++i) {
+                        if (staleGenes[i]) {
+                            hash ^= geneHashes[i];
+                            geneHashes[i] = geneHash(i);
+                            hash ^= geneHashes[i];
+                            staleGenes[i] = false;
+                        }
+                    }
+                    stale = false;
+                }
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PolygonGenome)) {
+            return false;
+        }
+        PolygonGenome other = (PolygonGenome) o;
+        return vertexCount == other.vertexCount && hash64() == other.hash64() && Arrays.equals(data, other.data);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash64());
+    }
+
+    private void markStale(int polygon) {
+        staleGenes[polygon] = true;
+        stale = true;
+    }
+
+    private long geneHash(int polygon) {
+        long geneHash = (polygon + 1) * 0x9e3779b97f4a7c15L;
+        for (int i = polygon * stride, end = i + stride; i < end; ++i) {
+            geneHash = (geneHash ^ data[i]) * 0xbf58476d1ce4e5b9L;
+            geneHash ^= geneHash >>> 31;
+        }
+        return geneHash;
+    }
+
+    /**
+     * Write the genome in a compact binary form: polygon count, vertex count, coordinate width and then every polygon
+     * as its ARGB colour followed by the coordinates. Coordinates are written as unsigned 16 bit values when all of
+     * them fit, which is the case for any genome confined to an image.
+     *
+     * @param output destination
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        boolean shortCoordinates = true;
+        for (int i = 0; i < polygonCount && shortCoordinates; ++i) {
+            for (int j = i * stride + 1, end = (i + 1) * stride; j < end; ++j) {
+                if ((data[j] & ~0xffff) != 0) {
+                    shortCoordinates = false;
+                    break;
+                }
+            }
+        }
+        output.writeInt(polygonCount);
+        output.writeInt(vertexCount);
+        output.writeByte(shortCoordinates ? SHORT_COORDINATES : INT_COORDINATES);
+        for (int i = 0; i < polygonCount; ++i) {
+            output.writeInt(data[i * stride]);
+            for (int j = i * stride + 1, end = (i + 1) * stride; j < end; ++j) {
+                if (shortCoordinates) {
+                    output.writeShort(data[j]);
+                } else {
+                    output.writeInt(data[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read a genome written by {@link #writeTo(DataOutput)}. The data are buffered as they arrive, so a header
+     * declaring more polygons than the input holds fails on the end of the input without allocating the whole genome.
+     *
+     * @param input source
+     * @return genome of at most {@link #MAX_POLYGONS} polygons of at most {@link #MAX_VERTICES} vertices
+     * @throws IOException if reading fails or the data are malformed
+     */
+    public static PolygonGenome readFrom(DataInput input) throws IOException {
+        return readFrom(input, -1, -1);
+    }
+
+    /**
+     * Read a genome written by {@link #writeTo(DataOutput)}, rejecting genomes of another shape before their data are
+     * read.
+     *
+     * @param input                source
+     * @param expectedPolygonCount number of polygons of the genome, any when negative
+     * @param expectedVertexCount  number of vertices of every polygon, any when negative
+     * @return genome
+     * @throws IOException if reading fails, the data are malformed or the genome has another shape
+     */
+    public static PolygonGenome readFrom(DataInput input, int expectedPolygonCount, int expectedVertexCount)
+            throws IOException {
+        int polygonCount = input.readInt();
+        int vertexCount = input.readInt();
+        int coordinates = input.readUnsignedByte();
+        if (polygonCount < 0 || polygonCount > MAX_POLYGONS || vertexCount <= 0 || vertexCount > MAX_VERTICES
+                || (coordinates != INT_COORDINATES && coordinates != SHORT_COORDINATES)) {
+            throw new IOException("Malformed genome header");
+        }
+        if ((expectedPolygonCount >= 0 && polygonCount != expectedPolygonCount)
+                || (expectedVertexCount >= 0 && vertexCount != expectedVertexCount)) {
+            throw new IOException("Genome of " + polygonCount + " polygons of " + vertexCount + " vertices, expected "
+                    + expectedPolygonCount + " polygons of " + expectedVertexCount + " vertices");
+        }
+        int stride = 1 + 2 * vertexCount;
+        int[] data = new int[Math.min(polygonCount, READ_CHUNK_POLYGONS) * stride];
+        for (int i = 0; i < polygonCount; ++i) {
+            if ((i + 1) * stride > data.length) {
+                data = Arrays.copyOf(data, Math.min(polygonCount, 2 * i) * stride);
+            }
+            data[i * stride] = input.readInt();
+            for (int j = i * stride + 1, end = (i + 1) * stride; j < end; ++j) {
+                data[j] = coordinates == SHORT_COORDINATES ? input.readUnsignedShort() : input.readInt();
+            }
+        }
+        return new PolygonGenome(polygonCount, vertexCount, data);
+    }
+}
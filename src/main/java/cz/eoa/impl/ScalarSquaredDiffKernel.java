@@ -0,0 +1,22 @@
+package cz.eoa.impl;
+
+/**
+ * @author Ondřej Kratochvíl
+ */
+final class ScalarSquaredDiffKernel implements SquaredDiffKernel {
+
+    static final ScalarSquaredDiffKernel INSTANCE = new ScalarSquaredDiffKernel();
+
+    private ScalarSquaredDiffKernel() {
+    }
+
+    @Override
+    public long sum(byte[] first, int firstOffset, byte[] second, int secondOffset, int length) {
+        long sum = 0;
+        for (int i = 0; i < length; ++i) {
+            int diff = (first[firstOffset + i] & 0xFF) - (second[secondOffset + i] & 0xFF);
+            sum += diff * diff;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,106 @@
+package cz.eoa.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes snapshots of a run (rendered images, compressed solutions) on a background thread, so that encoding and
+ * disk speed do not add to the epoch time. Snapshots are queued under a key: a snapshot replaces a pending one with
+ * the same key, so only the latest one is written if the writer falls behind (e.g. the best solution, which changes
+ * almost every epoch early on). Snapshots with a new key are dropped while the queue is full.
+ *
+ * @author Ondřej Kratochvíl
+ */
+public class SnapshotWriter implements Closeable {
+    private final static Logger logger = Logger.getLogger(SnapshotWriter.class.getName());
+
+    private final int capacity;
+    private final Thread thread;
+    //guarded by this
+    private final LinkedHashMap<String, Snapshot> pending = new LinkedHashMap<>();
+    private boolean closed = false;
+
+    /**
+     * @param capacity maximum number of pending snapshots
+     */
+    public SnapshotWriter(int capacity) {
+        assert capacity > 0;
+        this.capacity = capacity;
+        this.thread = new Thread(this::drain, "snapshot-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queue a snapshot to be written, without waiting for it.
+     *
+     * @param key      snapshots with the same key replace each other while pending, e.g. the output file
+     * @param snapshot writing of the snapshot, must not depend on state changed by the run afterwards
+     */
+    public synchronized void submit(String key, Snapshot snapshot) {
+        if (closed) {
+            throw new IllegalStateException("Snapshot writer is closed");
+        }
+        if (!pending.containsKey(key) && pending.size() >= capacity) {
+            logger.warning("Snapshot queue is full, dropping " + key);
+            return;
+        }
+        pending.put(key, snapshot);
+        notifyAll();
+    }
+
+    /**
+     * Write the pending snapshots and stop the writer.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            String key;
+            Snapshot snapshot;
+            synchronized (this) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                Iterator<Map.Entry<String, Snapshot>> iterator = pending.entrySet().iterator();
+                Map.Entry<String, Snapshot> next = iterator.next();
+                key = next.getKey();
+                snapshot = next.getValue();
+                iterator.remove();
+            }
+            try {
+                snapshot.write();
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.WARNING, "Unable to write snapshot " + key, e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Snapshot {
+        void write() throws IOException;
+    }
+}
@@ -0,0 +1,53 @@
+package cz.eoa.impl;
+
+import java.util.logging.Logger;
+
+/**
+ * Sum of squared differences of two arrays of unsigned bytes, the inner loop of the image fitness.
+ *
+ * @author Ondřej Kratochvíl
+ */
+public interface SquaredDiffKernel {
+
+    /**
+     * Name of the SIMD implementation, compiled only on JDK 17+ from {@code src/main/java-vector}.
+     */
+    String VECTOR_KERNEL = "cz.eoa.impl.VectorSquaredDiffKernel";
+
+    /**
+     * @param first        first array
+     * @param firstOffset  position of the first compared byte in the first array
+     * @param second       second array
+     * @param secondOffset position of the first compared byte in the second array
+     * @param length       number of compared bytes
+     * @return sum of squared differences of the bytes taken as unsigned
+     */
+    long sum(byte[] first, int firstOffset, byte[] second, int secondOffset, int length);
+
+    /**
+     * @return plain Java implementation
+     */
+    static SquaredDiffKernel scalar() {
+        return ScalarSquaredDiffKernel.INSTANCE;
+    }
+
+    /**
+     * Get the implementation using the {@code jdk.incubator.vector} API, if it has been compiled and the module is
+     * present at runtime ({@code --add-modules jdk.incubator.vector}). Falls back to {@link #scalar()} otherwise.
+     * Both give identical results, which is checked by the tests.
+     *
+     * @return the fastest available implementation
+     */
+    static SquaredDiffKernel vectorizedOrScalar() {
+        Logger logger = Logger.getLogger(SquaredDiffKernel.class.getName());
+        try {
+            SquaredDiffKernel vector = (SquaredDiffKernel) Class.forName(VECTOR_KERNEL)
+                    .getDeclaredConstructor().newInstance();
+            logger.info("Using vector fitness kernel");
+            return vector;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.info("Vector API not available, using scalar fitness kernel: " + e);
+            return scalar();
+        }
+    }
+}
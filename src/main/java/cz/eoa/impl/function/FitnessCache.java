@@ -0,0 +1,158 @@
+package cz.eoa.impl.function;
+
+import cz.eoa.templates.Individual;
+import cz.eoa.templates.operations.DecodingFitnessAssessmentStrategy;
+import cz.eoa.templates.operations.DecodingStrategy;
+import cz.eoa.templates.operations.FitnessAssessmentStrategy;
+import cz.eoa.templates.operations.ProgressiveFitnessAssessmentStrategy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded cache of fitness keyed by a 64 bit hash of the genes, so that individuals with the same genes (parents
+ * re-scored by a crossover, children identical to an evaluated individual) are assessed once. The cache is split
+ * into segments by the hash, each one evicting its least recently used entry and locked on its own. A hit is
+ * confirmed by comparing the genes, so hash collisions never return a wrong fitness.
+ * <p>
+ * Refinement of a wrapped {@link ProgressiveFitnessAssessmentStrategy} is passed on and clears the cache.
+ *
+ * @author Ondřej Kratochvíl
+ */
+public class FitnessCache<V, T, K extends Comparable<K>> implements ProgressiveFitnessAssessmentStrategy<V, T, K> {
+
+    private static final int SEGMENTS = 16;
+
+    private final DecodingFitnessAssessmentStrategy<V, T, K> assessment;
+    private final ToLongFunction<V> hash;
+    private final List<Segment> segments = new ArrayList<>(SEGMENTS);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param decoding          decoding of the genes
+     * @param fitnessAssessment assessment of the decoded solution
+     * @param hash              64 bit hash of the genes
+     * @param capacity          maximal number of cached fitness values
+     */
+    public FitnessCache(DecodingStrategy<V, T> decoding, FitnessAssessmentStrategy<T, K> fitnessAssessment,
+                        ToLongFunction<V> hash, int capacity) {
+        this(individual -> fitnessAssessment.computeFitnessForIndividual(individual.decode(decoding)), hash, capacity);
+    }
+
+    /**
+     * @param assessment assessment of the individuals
+     * @param hash       64 bit hash of the genes
+     * @param capacity   maximal number of cached fitness values
+     */
+    public FitnessCache(DecodingFitnessAssessmentStrategy<V, T, K> assessment, ToLongFunction<V> hash, int capacity) {
+        assert capacity > 0;
+        this.assessment = assessment;
+        this.hash = hash;
+        for (int i = 0; i < SEGMENTS; ++i) {
+            segments.add(new Segment(Math.max(1, (capacity + SEGMENTS - 1) / SEGMENTS)));
+        }
+    }
+
+    @Override
+    public K computeFitnessForIndividual(Individual<V, T> individual) {
+        V genes = individual.getGenes();
+        long key = hash.applyAsLong(genes);
+        Segment segment = segments.get((int) (key ^ (key >>> 32)) & (SEGMENTS - 1));
+        Entry<V, K> cached;
+        synchronized (segment) {
+            cached = segment.get(key);
+        }
+        if (cached != null && cached.genes.equals(genes)) {
+            hits.increment();
+            return cached.fitness;
+        }
+        misses.increment();
+        K fitness = assessment.computeFitnessForIndividual(individual);
+        synchronized (segment) {
+            segment.put(key, new Entry<>(genes, fitness));
+        }
+        return fitness;
+    }
+
+    @Override
+    public boolean refine(int epoch, K bestFitness) {
+        if (!(assessment instanceof ProgressiveFitnessAssessmentStrategy)
+                || !((ProgressiveFitnessAssessmentStrategy<V, T, K>) assessment).refine(epoch, bestFitness)) {
+            return false;
+        }
+        clear();
+        return true;
+    }
+
+    @Override
+    public int getRefinements() {
+        return assessment instanceof ProgressiveFitnessAssessmentStrategy
+                ? ((ProgressiveFitnessAssessmentStrategy<V, T, K>) assessment).getRefinements()
+                : 0;
+    }
+
+    @Override
+    public void restoreRefinements(int refinements) {
+        if (assessment instanceof ProgressiveFitnessAssessmentStrategy) {
+            ((ProgressiveFitnessAssessmentStrategy<V, T, K>) assessment).restoreRefinements(refinements);
+            clear();
+        }
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private static class Entry<V, K> {
+        private final V genes;
+        private final K fitness;
+
+        private Entry(V genes, K fitness) {
+            this.genes = genes;
+            this.fitness = fitness;
+        }
+    }
+
+    /**
+     * Least recently used entries, guarded by itself.
+     */
+    private class Segment extends LinkedHashMap<Long, Entry<V, K>> {
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry<V, K>> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
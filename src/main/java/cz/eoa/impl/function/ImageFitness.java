@@ -1,5 +1,6 @@
 package cz.eoa.impl.function;
 
+import cz.eoa.impl.SquaredDiffKernel;
 import cz.eoa.templates.operations.FitnessAssessmentStrategy;
 
 import java.awt.image.BufferedImage;
@@ -9,31 +10,36 @@ import java.awt.image.DataBufferByte;
 import static cz.eoa.impl.GraphicHelper.pixelDiff;
 
 /**
+ * The input image is kept as a single row-major byte array with the same layout as the data buffer of the
+ * solution, so both are scored in one sequential pass.
+ *
  * @author Ondřej Kratochvíl
  */
 public class ImageFitness implements FitnessAssessmentStrategy<BufferedImage, Double> {
 
     private final BufferedImage inputImage;
-    private final byte[] pixels;
     private final boolean hasAlpha;
     private final int pixelLength;
-
-    private final short[][] alphaArray;
-    private final short[][] redArray;
-    private final short[][] greenArray;
-    private final short[][] blueArray;
+    private final int rowLength;
+    private final byte[] reference;
+    private final SquaredDiffKernel kernel;
 
     public ImageFitness(BufferedImage inputImage) {
+        this(inputImage, SquaredDiffKernel.scalar());
+    }
+
+    /**
+     * @param inputImage target image
+     * @param kernel     implementation of the inner loop, see {@link SquaredDiffKernel#vectorizedOrScalar()}
+     */
+    public ImageFitness(BufferedImage inputImage, SquaredDiffKernel kernel) {
         this.inputImage = inputImage;
-        this.pixels = ((DataBufferByte) inputImage.getRaster().getDataBuffer()).getData();
+        this.kernel = kernel;
         this.hasAlpha =  inputImage.getAlphaRaster() != null;
         this.pixelLength = hasAlpha ? 4 : 3;
-
-        alphaArray = new short[inputImage.getWidth()][inputImage.getHeight()];
-        redArray = new short[inputImage.getWidth()][inputImage.getHeight()];
-        greenArray = new short[inputImage.getWidth()][inputImage.getHeight()];
-        blueArray = new short[inputImage.getWidth()][inputImage.getHeight()];
-        extractArrayFromImage();
+        this.rowLength = inputImage.getWidth() * pixelLength;
+        // copy, so that the reference stays intact if the input image is drawn into
+        this.reference = ((DataBufferByte) inputImage.getRaster().getDataBuffer()).getData().clone();
     }
 
     @Override
@@ -56,43 +62,42 @@ public class ImageFitness implements FitnessAssessmentStrategy<BufferedImage, Do
         return fitness * -1;
     }
 
+    /**
+     * Without alpha channel in the input, the solution is considered opaque, i.e. the alpha difference is zero
+     * and only the colour bytes are compared.
+     */
     private double computeFitnessFast(byte[] solutionData) {
-        double fitness = 0;
-        for (int i = 0; i < inputImage.getWidth(); ++i) {
-            for (int j = 0; j < inputImage.getHeight(); ++j) {
-                fitness += pixelDiffFast(i, j, solutionData);
-            }
-        }
-        return fitness * -1;
+        return diff(solutionData, 0, 0, reference.length) * -1.0;
     }
 
-    private int getRgbFast(int x, int y, byte[] data) {
-        int position = (y * pixelLength * inputImage.getWidth()) + (x * pixelLength);
-        short alpha = hasAlpha ? (short) (data[position++] & 0xFF) : 0xFF;
-        short red = (short) (data[position++] & 0xFF);
-        short green = (short) (data[position++] & 0xFF);
-        short blue = (short) (data[position++] & 0xFF);
-        return (alpha << 24) + (red << 16) + (green << 8) + blue;
+    /**
+     * Sum the squared channel differences of a single row of the solution against the input image.
+     *
+     * @param y         row of the image
+     * @param data      buffer holding the row, laid out as the data buffer of the input image
+     * @param rowOffset position of the first pixel of the row in the buffer
+     * @param minX      first column to be compared
+     * @param maxX      column after the last column to be compared
+     * @return sum of squared differences, i.e. the row's contribution to the negated fitness
+     */
+    public long computeRowDiff(int y, byte[] data, int rowOffset, int minX, int maxX) {
+        return diff(data, rowOffset + minX * pixelLength, y * rowLength + minX * pixelLength,
+                (maxX - minX) * pixelLength);
     }
 
-    private int pixelDiffFast(int x, int y, byte[] data) {
-        int position = (y * pixelLength * inputImage.getWidth()) + (x * pixelLength);
-        int alphaDiff = (hasAlpha ? (data[position++] & 0xFF) : 0xFF) - alphaArray[x][y];
-        int redDiff = (data[position++] & 0xFF) - redArray[x][y];
-        int greenDiff = (data[position++] & 0xFF) - greenArray[x][y];
-        int blueDiff = (data[position++] & 0xFF) - blueArray[x][y];
-        return (alphaDiff * alphaDiff) + (redDiff * redDiff) + (greenDiff * greenDiff) + (blueDiff * blueDiff);
+    public int getWidth() {
+        return inputImage.getWidth();
     }
 
-    private void extractArrayFromImage() {
-        for (int x = 0; x < inputImage.getWidth(); ++x) {
-            for (int y = 0; y < inputImage.getHeight(); ++y) {
-                int position = (y * pixelLength * inputImage.getWidth()) + (x * pixelLength);
-                alphaArray[x][y] = hasAlpha ? (short) (pixels[position++] & 0xFF) : 0xFF;
-                redArray[x][y] = (short) (pixels[position++] & 0xFF);
-                greenArray[x][y] = (short) (pixels[position++] & 0xFF);
-                blueArray[x][y] = (short) (pixels[position++] & 0xFF);
-            }
-        }
+    public int getHeight() {
+        return inputImage.getHeight();
+    }
+
+    public boolean hasAlpha() {
+        return hasAlpha;
+    }
+
+    private long diff(byte[] data, int dataOffset, int referenceOffset, int length) {
+        return kernel.sum(data, dataOffset, reference, referenceOffset, length);
     }
 }
@@ -0,0 +1,230 @@
+package cz.eoa.impl.function;
+
+import cz.eoa.cycle.EvolutionMetrics;
+import cz.eoa.impl.ImageIndividual;
+import cz.eoa.impl.PolygonGenome;
+import cz.eoa.impl.PolygonRasterizer;
+import cz.eoa.templates.Individual;
+import cz.eoa.templates.operations.DecodingFitnessAssessmentStrategy;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Fitness evaluation re-scoring only the parts of the image affected by a mutation. The image is split into square
+ * tiles and the squared differences of every evaluated {@link ImageIndividual} are kept per tile. When an individual
+ * derived from an evaluated one is assessed, only the tiles intersecting the bounding boxes of the changed polygons
+ * (both their original and their new shape) are rendered again, the rest is copied from the origin. Individuals
+ * without a usable lineage, or with too large a changed area, are evaluated in full.
+ * <p>
+ * The result is exactly the same as the one of {@link RasterizedImageFitness}. Time spent rendering is reported as
+ * decoding to {@link EvolutionMetrics#reportDecoding(long)}.
+ *
+ * @author Ondřej Kratochvíl
+ */
+public class IncrementalImageFitness implements DecodingFitnessAssessmentStrategy<PolygonGenome, BufferedImage, Double> {
+
+    private static final int DEFAULT_TILE_SIZE = 32;
+    /**
+     * Above this ratio of changed tiles the bookkeeping does not pay off and the image is evaluated in full.
+     */
+    private static final double MAX_DIRTY_RATIO = 0.75;
+
+    private final ImageFitness imageFitness;
+    private final int tileSize;
+    private final int tilesX;
+    private final int tilesY;
+    private final ThreadLocal<Workspace> workspace;
+
+    public IncrementalImageFitness(ImageFitness imageFitness) {
+        this(imageFitness, DEFAULT_TILE_SIZE);
+    }
+
+    public IncrementalImageFitness(ImageFitness imageFitness, int tileSize) {
+        assert tileSize > 0;
+        this.imageFitness = imageFitness;
+        this.tileSize = tileSize;
+        this.tilesX = (imageFitness.getWidth() + tileSize - 1) / tileSize;
+        this.tilesY = (imageFitness.getHeight() + tileSize - 1) / tileSize;
+        this.workspace = ThreadLocal.withInitial(Workspace::new);
+    }
+
+    @Override
+    public Double computeFitnessForIndividual(Individual<PolygonGenome, BufferedImage> individual) {
+        Workspace workspace = this.workspace.get();
+        if (!(individual instanceof ImageIndividual)) {
+            return fitness(computeAllTileDiffs(individual.getGenes(), workspace));
+        }
+        ImageIndividual imageIndividual = (ImageIndividual) individual;
+        long[] tileDiffs = imageIndividual.getTileDiffs(this);
+        if (tileDiffs == null) {
+            ImageIndividual origin = imageIndividual.getOrigin();
+            BitSet changedGenes = imageIndividual.getChangedGenes();
+            // differences computed by another assessment hold for another image or tiles
+            long[] originTileDiffs = origin != null ? origin.getTileDiffs(this) : null;
+            if (originTileDiffs != null && changedGenes != null
+                    && origin.getGenes().size() == individual.getGenes().size()) {
+                tileDiffs = computeChangedTileDiffs(imageIndividual.getGenes(), origin.getGenes(), originTileDiffs,
+                        changedGenes, workspace);
+            }
+            if (tileDiffs == null) {
+                tileDiffs = computeAllTileDiffs(imageIndividual.getGenes(), workspace);
+            }
+            imageIndividual.setTileDiffs(this, tileDiffs);
+        }
+        return fitness(tileDiffs);
+    }
+
+    /**
+     * @return per-tile differences, or null if too large a part of the image has changed
+     */
+    private long[] computeChangedTileDiffs(PolygonGenome genes, PolygonGenome originGenes, long[] originTileDiffs,
+                                           BitSet changedGenes, Workspace workspace) {
+        boolean[] dirty = workspace.dirty;
+        Arrays.fill(dirty, false);
+        int[] bounds = workspace.bounds;
+        for (int i = changedGenes.nextSetBit(0); i >= 0 && i < genes.size(); i = changedGenes.nextSetBit(i + 1)) {
+            PolygonRasterizer.pixelBounds(originGenes, i, bounds);
+            markDirty(bounds, dirty);
+            PolygonRasterizer.pixelBounds(genes, i, bounds);
+            markDirty(bounds, dirty);
+        }
+        int dirtyCount = 0;
+        for (boolean tile : dirty) {
+            if (tile) {
+                ++dirtyCount;
+            }
+        }
+        if (dirtyCount > MAX_DIRTY_RATIO * dirty.length) {
+            return null;
+        }
+        long[] tileDiffs = originTileDiffs.clone();
+        renderTiles(genes, dirty, tileDiffs, workspace);
+        return tileDiffs;
+    }
+
+    private long[] computeAllTileDiffs(PolygonGenome genes, Workspace workspace) {
+        Arrays.fill(workspace.dirty, true);
+        long[] tileDiffs = new long[tilesX * tilesY];
+        renderTiles(genes, workspace.dirty, tileDiffs, workspace);
+        return tileDiffs;
+    }
+
+    private void markDirty(int[] bounds, boolean[] dirty) {
+        int fromX = Math.max(0, bounds[0]) / tileSize;
+        int fromY = Math.max(0, bounds[1]) / tileSize;
+        int toX = Math.min(imageFitness.getWidth() - 1, bounds[2]);
+        int toY = Math.min(imageFitness.getHeight() - 1, bounds[3]);
+        if (toX < 0 || toY < 0 || bounds[0] > toX || bounds[1] > toY) {
+            return;
+        }
+        for (int tileY = fromY; tileY <= toY / tileSize; ++tileY) {
+            for (int tileX = fromX; tileX <= toX / tileSize; ++tileX) {
+                dirty[tileY * tilesX + tileX] = true;
+            }
+        }
+    }
+
+    /**
+     * Render and score the dirty tiles, going through runs of consecutive dirty tiles. The rows of a run are rendered
+     * into a band first and then scored while still in cache.
+     */
+    private void renderTiles(PolygonGenome genes, boolean[] dirty, long[] tileDiffs, Workspace workspace) {
+        int width = imageFitness.getWidth();
+        int height = imageFitness.getHeight();
+        int pixelLength = workspace.rasterizer.getPixelLength();
+        int[][] polygonBounds = workspace.polygonBounds(genes.size());
+        for (int i = 0; i < genes.size(); ++i) {
+            PolygonRasterizer.pixelBounds(genes, i, polygonBounds[i]);
+        }
+        int[] candidates = workspace.candidates(genes.size());
+        int rowLength = width * pixelLength;
+        byte[] band = workspace.band;
+        long decodingNanos = 0;
+
+        for (int tileY = 0; tileY < tilesY; ++tileY) {
+            int minY = tileY * tileSize;
+            int maxY = Math.min(height, minY + tileSize) - 1;
+            for (int tileX = 0; tileX < tilesX; ++tileX) {
+                if (!dirty[tileY * tilesX + tileX]) {
+                    continue;
+                }
+                int firstTileX = tileX;
+                while (tileX + 1 < tilesX && dirty[tileY * tilesX + tileX + 1]) {
+                    ++tileX;
+                }
+                int minX = firstTileX * tileSize;
+                int maxX = Math.min(width, (tileX + 1) * tileSize);
+
+                // polygons overlapping the run of tiles, in their original order
+                int candidateCount = 0;
+                for (int i = 0; i < genes.size(); ++i) {
+                    int[] bounds = polygonBounds[i];
+                    if (bounds[0] < maxX && bounds[2] >= minX && bounds[1] <= maxY && bounds[3] >= minY) {
+                        candidates[candidateCount++] = i;
+                    }
+                }
+                for (int tile = firstTileX; tile <= tileX; ++tile) {
+                    tileDiffs[tileY * tilesX + tile] = 0;
+                }
+                long renderingStart = System.nanoTime();
+                for (int y = minY; y <= maxY; ++y) {
+                    int rowOffset = (y - minY) * rowLength;
+                    Arrays.fill(band, rowOffset + minX * pixelLength, rowOffset + maxX * pixelLength, (byte) 0);
+                    for (int c = 0; c < candidateCount; ++c) {
+                        int[] bounds = polygonBounds[candidates[c]];
+                        if (bounds[1] <= y && y <= bounds[3]) {
+                            workspace.rasterizer.fillRow(genes, candidates[c], y, band, rowOffset, minX, maxX);
+                        }
+                    }
+                }
+                decodingNanos += System.nanoTime() - renderingStart;
+                for (int y = minY; y <= maxY; ++y) {
+                    for (int tile = firstTileX; tile <= tileX; ++tile) {
+                        tileDiffs[tileY * tilesX + tile] += imageFitness.computeRowDiff(
+                                y, band, (y - minY) * rowLength, tile * tileSize, Math.min(width, (tile + 1) * tileSize)
+                        );
+                    }
+                }
+            }
+        }
+        EvolutionMetrics.reportDecoding(decodingNanos);
+    }
+
+    private static double fitness(long[] tileDiffs) {
+        long diff = 0;
+        for (long tileDiff : tileDiffs) {
+            diff += tileDiff;
+        }
+        return (double) -diff;
+    }
+
+    /**
+     * Per-thread rasterizer and scratch buffers.
+     */
+    private class Workspace {
+        private final PolygonRasterizer rasterizer = new PolygonRasterizer(
+                imageFitness.getWidth(), imageFitness.getHeight(), imageFitness.hasAlpha()
+        );
+        private final byte[] band = new byte[tileSize * imageFitness.getWidth() * rasterizer.getPixelLength()];
+        private final boolean[] dirty = new boolean[tilesX * tilesY];
+        private final int[] bounds = new int[4];
+        private int[][] polygonBounds = new int[0][];
+        private int[] candidates = new int[0];
+
+        private int[][] polygonBounds(int size) {
+            if (polygonBounds.length < size) {
+                polygonBounds = new int[size][4];
+            }
+            return polygonBounds;
+        }
+
+        private int[] candidates(int size) {
+            if (candidates.length < size) {
+                candidates = new int[size];
+            }
+            return candidates;
+        }
+    }
+}
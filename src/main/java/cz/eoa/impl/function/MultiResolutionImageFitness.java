@@ -0,0 +1,183 @@
+package cz.eoa.impl.function;
+
+import cz.eoa.impl.PolygonGenome;
+import cz.eoa.impl.SquaredDiffKernel;
+import cz.eoa.templates.Individual;
+import cz.eoa.templates.operations.DecodingFitnessAssessmentStrategy;
+import cz.eoa.templates.operations.ProgressiveFitnessAssessmentStrategy;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Coarse-to-fine fitness: the run starts by scoring against the input image downsampled by {@code 2^levels},
+ * rendering the polygons scaled to the same size, and halves the downsampling whenever the best fitness improves by
+ * less than a given ratio within a number of epochs, down to the full resolution assessed by another strategy.
+ * Squared differences of a coarse level are scaled by the ratio of pixel counts, so fitness stays in the same range.
+ * <p>
+ * The level is a state of the run, an instance must not be shared by concurrent runs (e.g. islands).
+ *
+ * @author Ondřej Kratochvíl
+ */
+public class MultiResolutionImageFitness implements ProgressiveFitnessAssessmentStrategy<PolygonGenome, BufferedImage, Double> {
+    private final static Logger logger = Logger.getLogger(MultiResolutionImageFitness.class.getName());
+
+    private final DecodingFitnessAssessmentStrategy<PolygonGenome, BufferedImage, Double> fullResolution;
+    private final int width;
+    private final int height;
+    //level i is downsampled by 2^(i + 1)
+    private final List<Level> coarseLevels = new ArrayList<>();
+    private final int patience;
+    private final double minImprovement;
+    private final ThreadLocal<PolygonGenome> scaledGenes = new ThreadLocal<>();
+    //number of halvings of the current level, 0 for the full resolution
+    private volatile int level;
+    //used only by the thread refining the assessment
+    private double reference;
+    private int referenceEpoch = -1;
+
+    /**
+     * @param inputImage     target image
+     * @param kernel         inner loop of the coarse levels
+     * @param fullResolution assessment of the finest level, e.g. {@link IncrementalImageFitness}
+     * @param levels         number of coarse levels, each one halving the resolution of the finer one
+     * @param patience       number of epochs after which the improvement is checked
+     * @param minImprovement relative improvement of the best fitness within patience epochs under which the
+     *                       resolution is refined
+     */
+    public MultiResolutionImageFitness(BufferedImage inputImage, SquaredDiffKernel kernel,
+                                       DecodingFitnessAssessmentStrategy<PolygonGenome, BufferedImage, Double> fullResolution,
+                                       int levels, int patience, double minImprovement) {
+        assert levels >= 0 && patience > 0;
+        this.fullResolution = fullResolution;
+        this.width = inputImage.getWidth();
+        this.height = inputImage.getHeight();
+        this.patience = patience;
+        this.minImprovement = minImprovement;
+        for (int i = 1; i <= levels; ++i) {
+            BufferedImage target = downsample(inputImage, Math.max(1, width >> i), Math.max(1, height >> i));
+            coarseLevels.add(new Level(target, kernel, (double) width * height / (target.getWidth() * target.getHeight())));
+        }
+        this.level = levels;
+    }
+
+    @Override
+    public Double computeFitnessForIndividual(Individual<PolygonGenome, BufferedImage> individual) {
+        int current = level;
+        if (current == 0) {
+            return fullResolution.computeFitnessForIndividual(individual);
+        }
+        Level coarse = coarseLevels.get(current - 1);
+        return coarse.fitness.computeFitness(scale(individual.getGenes(), coarse)) * coarse.pixelRatio;
+    }
+
+    @Override
+    public synchronized boolean refine(int epoch, Double bestFitness) {
+        if (level == 0) {
+            return false;
+        }
+        if (referenceEpoch < 0) {
+            reference = bestFitness;
+            referenceEpoch = epoch;
+            return false;
+        }
+        if (epoch - referenceEpoch < patience) {
+            return false;
+        }
+        boolean stalled = bestFitness - reference < minImprovement * Math.abs(reference);
+        reference = bestFitness;
+        referenceEpoch = epoch;
+        if (!stalled) {
+            return false;
+        }
+        --level;
+        referenceEpoch = -1;
+        logger.info("Fitness refined to 1/" + (1 << level) + " of the resolution in epoch " + epoch);
+        return true;
+    }
+
+    @Override
+    public int getRefinements() {
+        return coarseLevels.size() - level;
+    }
+
+    @Override
+    public synchronized void restoreRefinements(int refinements) {
+        level = Math.max(0, coarseLevels.size() - refinements);
+        referenceEpoch = -1;
+        logger.info("Fitness restored to 1/" + (1 << level) + " of the resolution");
+    }
+
+    /**
+     * @return number of halvings of the resolution currently assessed
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return genes with the vertices scaled to the level, in a buffer of the calling thread
+     */
+    private PolygonGenome scale(PolygonGenome genes, Level coarse) {
+        PolygonGenome scaled = scaledGenes.get();
+        if (scaled == null || scaled.size() != genes.size() || scaled.getVertexCount() != genes.getVertexCount()) {
+            scaled = new PolygonGenome(genes.size(), genes.getVertexCount());
+            scaledGenes.set(scaled);
+        }
+        for (int i = 0; i < genes.size(); ++i) {
+            scaled.setColour(i, genes.getColour(i));
+            for (int j = 0; j < genes.getVertexCount(); ++j) {
+                scaled.setVertex(i, j, (int) ((long) genes.getX(i, j) * coarse.width / width),
+                        (int) ((long) genes.getY(i, j) * coarse.height / height));
+            }
+        }
+        return scaled;
+    }
+
+    /**
+     * Average the pixels of each block of the image covered by a pixel of the smaller one.
+     */
+    private static BufferedImage downsample(BufferedImage image, int targetWidth, int targetHeight) {
+        BufferedImage scaled = new BufferedImage(targetWidth, targetHeight, image.getType());
+        int[] row = new int[image.getWidth()];
+        for (int y = 0; y < targetHeight; ++y) {
+            int fromY = y * image.getHeight() / targetHeight, toY = (y + 1) * image.getHeight() / targetHeight;
+            long[][] sums = new long[targetWidth][4];
+            for (int sourceY = fromY; sourceY < toY; ++sourceY) {
+                image.getRGB(0, sourceY, image.getWidth(), 1, row, 0, image.getWidth());
+                for (int x = 0; x < targetWidth; ++x) {
+                    for (int sourceX = x * row.length / targetWidth; sourceX < (x + 1) * row.length / targetWidth; ++sourceX) {
+                        for (int channel = 0; channel < 4; ++channel) {
+                            sums[x][channel] += (row[sourceX] >>> (8 * channel)) & 0xff;
+                        }
+                    }
+                }
+            }
+            for (int x = 0; x < targetWidth; ++x) {
+                long count = (long) (toY - fromY) * ((x + 1) * row.length / targetWidth - x * row.length / targetWidth);
+                int argb = 0;
+                for (int channel = 0; channel < 4; ++channel) {
+                    argb |= (int) (sums[x][channel] / count) << (8 * channel);
+                }
+                scaled.setRGB(x, y, argb);
+            }
+        }
+        return scaled;
+    }
+
+    private static class Level {
+        private final RasterizedImageFitness fitness;
+        private final int width;
+        private final int height;
+        private final double pixelRatio;
+
+        private Level(BufferedImage target, SquaredDiffKernel kernel, double pixelRatio) {
+            this.fitness = new RasterizedImageFitness(new ImageFitness(target, kernel));
+            this.width = target.getWidth();
+            this.height = target.getHeight();
+            this.pixelRatio = pixelRatio;
+        }
+    }
+}
@@ -1,27 +1,34 @@
 package cz.eoa.impl.function;
 
 import cz.eoa.impl.ImageIndividual;
-import cz.eoa.impl.Polygon;
+import cz.eoa.impl.PolygonGenome;
 import cz.eoa.templates.Individual;
 import cz.eoa.templates.operations.MutationStrategy;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.util.List;
+import java.util.BitSet;
 import java.util.Optional;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.Collectors;
+
+import static cz.eoa.impl.GraphicHelper.*;
 
 /**
+ * Genes are copied lazily, on the first mutated polygon, so the parent is returned as is when nothing mutates.
+ * Unchanged polygons are not shared, the whole genome is copied, so the allocation drops only at low mutation rates:
+ * with 100 pentagons and a rate of 0.05 (as in {@code Main}) every call copies about 5.5 kB, at a rate of 0.001 half
+ * of the calls copy nothing. Indices of the mutated polygons are available through
+ * {@link ImageIndividual#getChangedGenes()}.
+ *
  * @author Ondřej Kratochvíl
  */
-public class PolygonDeltaMutation implements MutationStrategy<List<Polygon>, BufferedImage> {
+public class PolygonDeltaMutation implements MutationStrategy<PolygonGenome, BufferedImage> {
 
     private static final ThreadLocalRandom RANDOM = ThreadLocalRandom.current();
     private final BufferedImage inputImage;
     private final double mutationRate;
     private final int colourMutationDelta;
-    private final double mutationExtentVertex;
+    private final int xMutationDelta;
+    private final int yMutationDelta;
 
     public PolygonDeltaMutation(double mutationRate,
                                 double mutationExtentVertex,
@@ -29,39 +36,57 @@ public class PolygonDeltaMutation implements MutationStrategy<List<Polygon>, Buf
                                 BufferedImage inputImage) {
         assert mutationRate >= 0 && mutationRate <= 1;
         this.mutationRate = mutationRate;
-        this.mutationExtentVertex = mutationExtentVertex;
         this.colourMutationDelta = (int) (255 * mutationExtentColour);
+        this.xMutationDelta = (int) (inputImage.getWidth() * mutationExtentVertex);
+        this.yMutationDelta = (int) (inputImage.getHeight() * mutationExtentVertex);
         this.inputImage = inputImage;
     }
 
     @Override
-    public Optional<Individual<List<Polygon>, BufferedImage>> mutation(Individual<List<Polygon>, BufferedImage> individual) {
-        List<Polygon> originalGenes = individual.getGenes();
-        List<Polygon> mutatedGenes = originalGenes.stream() // TODO parallel
-                .map(polygon -> {
-                    Color mutatedColour = mutateColour(polygon.getColour());
-                    int[][] mutatedPoints = mutatePoints(polygon.getPoints());
-                    return new Polygon(mutatedPoints, mutatedColour);
-                })
-                .collect(Collectors.toList());
-        return Optional.of(new ImageIndividual(mutatedGenes));
+    public Optional<Individual<PolygonGenome, BufferedImage>> mutation(Individual<PolygonGenome, BufferedImage> individual) {
+        PolygonGenome originalGenes = individual.getGenes();
+        PolygonGenome mutatedGenes = null;
+        BitSet changedGenes = null;
+        for (int i = 0; i < originalGenes.size(); ++i) {
+            boolean mutated = false;
+            if (RANDOM.nextDouble() < mutationRate) {
+                if (mutatedGenes == null) {
+                    mutatedGenes = new PolygonGenome(originalGenes);
+                    changedGenes = new BitSet(originalGenes.size());
+                }
+                mutateColour(mutatedGenes, i);
+                mutated = true;
+            }
+            // TODO mutate all points, or only random? Can be weighted out by adjusting mutationExtentVertex/rate
+            for (int j = 0; j < originalGenes.getVertexCount(); ++j) {
+                if (RANDOM.nextDouble() < mutationRate) {
+                    if (mutatedGenes == null) {
+                        mutatedGenes = new PolygonGenome(originalGenes);
+                        changedGenes = new BitSet(originalGenes.size());
+                    }
+                    mutateVertex(mutatedGenes, i, j);
+                    mutated = true;
+                }
+            }
+            if (mutated) {
+                changedGenes.set(i);
+            }
+        }
+        if (mutatedGenes == null) {
+            return Optional.of(individual);
+        }
+        return Optional.of(new ImageIndividual(mutatedGenes, individual, changedGenes));
     }
 
-    private Color mutateColour(Color originalColour) {
-        if (RANDOM.nextDouble() < mutationRate) {
-            int alpha = originalColour.getAlpha();  // do not modify alpha
-            int red = originalColour.getRed();
-            int green = originalColour.getGreen();
-            int blue = originalColour.getBlue();
-            return new Color(mutateColourPart(red), mutateColourPart(green), mutateColourPart(blue), alpha);
-        } else {
-            return new Color(
-                    originalColour.getRed(),
-                    originalColour.getGreen(),
-                    originalColour.getBlue(),
-                    originalColour.getAlpha()
-            );
-        }
+    private void mutateColour(PolygonGenome genes, int polygon) {
+        int originalColour = genes.getColour(polygon);
+        int alpha = getAlpha(originalColour);  // do not modify alpha
+        int red = getRed(originalColour);
+        int green = getGreen(originalColour);
+        int blue = getBlue(originalColour);
+        genes.setColour(polygon, convertToARGB(
+                alpha, mutateColourPart(red), mutateColourPart(green), mutateColourPart(blue)
+        ));
     }
 
     private int mutateColourPart(int originalColour) {
@@ -71,28 +96,17 @@ public class PolygonDeltaMutation implements MutationStrategy<List<Polygon>, Buf
         );
     }
 
-    private int[][] mutatePoints(int[][] originalPoints) {
-        int xMutationDelta = (int) (inputImage.getWidth() * mutationExtentVertex);
-        int yMutationDelta = (int) (inputImage.getHeight() * mutationExtentVertex);
-        int[][] mutatedPoints = new int[originalPoints.length][originalPoints[0].length];
-
-        for (int i = 0; i < mutatedPoints.length; ++i) {
-            int[] originalPoint = originalPoints[i];
-            // TODO mutate all points, or only random? Can be weighted out by adjusting mutationExtentVertex/rate
-            if (RANDOM.nextDouble() < mutationRate) {
-                int xCoord = RANDOM.nextInt(
-                        Math.max(0, originalPoint[0] - xMutationDelta),
-                        Math.min(inputImage.getWidth(), originalPoint[0] + xMutationDelta + 1)
-                );
-                int yCoord = RANDOM.nextInt(
-                        Math.max(0, originalPoint[1] - yMutationDelta),
-                        Math.min(inputImage.getHeight(), originalPoint[1] + yMutationDelta + 1)
-                );
-                mutatedPoints[i] = new int[]{xCoord, yCoord};
-            } else {
-                mutatedPoints[i] = new int[]{originalPoint[0], originalPoint[1]};
-            }
-        }
-        return mutatedPoints;
+    private void mutateVertex(PolygonGenome genes, int polygon, int vertex) {
+        int originalX = genes.getX(polygon, vertex);
+        int originalY = genes.getY(polygon, vertex);
+        int xCoord = RANDOM.nextInt(
+                Math.max(0, originalX - xMutationDelta),
+                Math.min(inputImage.getWidth(), originalX + xMutationDelta + 1)
+        );
+        int yCoord = RANDOM.nextInt(
+                Math.max(0, originalY - yMutationDelta),
+                Math.min(inputImage.getHeight(), originalY + yMutationDelta + 1)
+        );
+        genes.setVertex(polygon, vertex, xCoord, yCoord);
     }
 }
@@ -1,22 +1,22 @@
 package cz.eoa.impl.function;
 
 import cz.eoa.impl.ImageIndividual;
-import cz.eoa.impl.Polygon;
+import cz.eoa.impl.PolygonGenome;
 import cz.eoa.templates.Individual;
 import cz.eoa.templates.operations.PopulationInitializationStrategy;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 
+import static cz.eoa.impl.GraphicHelper.convertToARGB;
+import static cz.eoa.impl.GraphicHelper.toColourPart;
+
 /**
  * Generate random triangles of random colours.
  *
  * @author Ondřej Kratochvíl
  */
-public class PolygonPopulationInitialization implements PopulationInitializationStrategy<List<Polygon>, BufferedImage> {
+public class PolygonPopulationInitialization implements PopulationInitializationStrategy<PolygonGenome, BufferedImage> {
 
     private static final ThreadLocalRandom RANDOM = ThreadLocalRandom.current();
     private final BufferedImage inputImage;
@@ -34,20 +34,20 @@ public class PolygonPopulationInitialization implements PopulationInitialization
     }
 
     @Override
-    public Individual<List<Polygon>, BufferedImage> initialize() {
-        List<Polygon> genes = new ArrayList<>(polygonCount);
+    public Individual<PolygonGenome, BufferedImage> initialize() {
+        PolygonGenome genes = new PolygonGenome(polygonCount, polygonEdges);
         float alpha = RANDOM.nextFloat() * (maxAlpha - minAlpha) + minAlpha;
         for (int i = 0; i < polygonCount; ++i) {
             // generate triangles
-            int[][] vertices = new int[polygonEdges][];
-            for (int j = 0; j < vertices.length; ++j) {
-                vertices[j] = new int[]{RANDOM.nextInt(inputImage.getWidth()), RANDOM.nextInt(inputImage.getHeight())};
+            for (int j = 0; j < polygonEdges; ++j) {
+                genes.setVertex(i, j, RANDOM.nextInt(inputImage.getWidth()), RANDOM.nextInt(inputImage.getHeight()));
             }
-            Polygon polygon = new Polygon(
-                    vertices,
-                    new Color(RANDOM.nextFloat(), RANDOM.nextFloat(), RANDOM.nextFloat(), alpha)
-            );
-            genes.add(polygon);
+            genes.setColour(i, convertToARGB(
+                    toColourPart(alpha),
+                    toColourPart(RANDOM.nextFloat()),
+                    toColourPart(RANDOM.nextFloat()),
+                    toColourPart(RANDOM.nextFloat())
+            ));
         }
         return new ImageIndividual(genes);
     }
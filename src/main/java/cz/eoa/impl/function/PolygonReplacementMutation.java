@@ -1,21 +1,25 @@
 package cz.eoa.impl.function;
 
 import cz.eoa.impl.ImageIndividual;
-import cz.eoa.impl.Polygon;
+import cz.eoa.impl.PolygonGenome;
 import cz.eoa.templates.Individual;
 import cz.eoa.templates.operations.MutationStrategy;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.util.List;
+import java.util.BitSet;
 import java.util.Optional;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.Collectors;
+
+import static cz.eoa.impl.GraphicHelper.convertToARGB;
+import static cz.eoa.impl.GraphicHelper.toColourPart;
 
 /**
+ * Genes are copied lazily, on the first replaced polygon, so the parent is returned as is when nothing mutates.
+ * Unchanged polygons are not shared, the whole genome is copied, see {@link PolygonDeltaMutation}.
+ *
  * @author Ondřej Kratochvíl
  */
-public class PolygonReplacementMutation implements MutationStrategy<List<Polygon>, BufferedImage> {
+public class PolygonReplacementMutation implements MutationStrategy<PolygonGenome, BufferedImage> {
 
     private static final ThreadLocalRandom RANDOM = ThreadLocalRandom.current();
     private static final double SEED_DISTANCE = 0.05;
@@ -33,41 +37,49 @@ public class PolygonReplacementMutation implements MutationStrategy<List<Polygon
     }
 
     @Override
-    public Optional<Individual<List<Polygon>, BufferedImage>> mutation(Individual<List<Polygon>, BufferedImage> individual) {
-        List<Polygon> polygons = individual.getGenes();
-        List<Polygon> mutatedPolygons = polygons.parallelStream()   // TODO not parallel?
-                .map(polygon -> {
-                    if (RANDOM.nextDouble() < mutationRate) {
-                        // vertices
-                        int[][] originalPoints = polygon.getPoints();
-                        int[][] points = new int[originalPoints.length][originalPoints[0].length];
-                        for (int j = 0; j < points.length; ++j) {
-                            // generate small polygons so they would survive in later stages of the algorithm
-                            int[] seed = {
-                                    RANDOM.nextInt(inputImage.getWidth()),
-                                    RANDOM.nextInt(inputImage.getHeight())
-                            };
-                            points[j] = new int[]{
-                                    RANDOM.nextInt(
-                                            Math.max(0, seed[0] - (int) (inputImage.getWidth() * SEED_DISTANCE)),
-                                            Math.min(inputImage.getWidth(), seed[0] + (int) (inputImage.getWidth() * SEED_DISTANCE))
-                                    ),
-                                    RANDOM.nextInt(
-                                            Math.max(0, seed[1] - (int) (inputImage.getHeight() * SEED_DISTANCE)),
-                                            Math.min(inputImage.getHeight(), seed[1] + (int) (inputImage.getHeight() * SEED_DISTANCE))
-                                    )
-                            };
-                        }
+    public Optional<Individual<PolygonGenome, BufferedImage>> mutation(Individual<PolygonGenome, BufferedImage> individual) {
+        PolygonGenome originalGenes = individual.getGenes();
+        PolygonGenome mutatedGenes = null;
+        BitSet changedGenes = null;
+        for (int i = 0; i < originalGenes.size(); ++i) {
+            if (RANDOM.nextDouble() < mutationRate) {
+                if (mutatedGenes == null) {
+                    mutatedGenes = new PolygonGenome(originalGenes);
+                    changedGenes = new BitSet(originalGenes.size());
+                }
+                // vertices
+                for (int j = 0; j < mutatedGenes.getVertexCount(); ++j) {
+                    // generate small polygons so they would survive in later stages of the algorithm
+                    int[] seed = {
+                            RANDOM.nextInt(inputImage.getWidth()),
+                            RANDOM.nextInt(inputImage.getHeight())
+                    };
+                    mutatedGenes.setVertex(i, j,
+                            RANDOM.nextInt(
+                                    Math.max(0, seed[0] - (int) (inputImage.getWidth() * SEED_DISTANCE)),
+                                    Math.min(inputImage.getWidth(), seed[0] + (int) (inputImage.getWidth() * SEED_DISTANCE))
+                            ),
+                            RANDOM.nextInt(
+                                    Math.max(0, seed[1] - (int) (inputImage.getHeight() * SEED_DISTANCE)),
+                                    Math.min(inputImage.getHeight(), seed[1] + (int) (inputImage.getHeight() * SEED_DISTANCE))
+                            )
+                    );
+                }
 
-                        // colour
-                        float alpha = RANDOM.nextFloat() * (maxAlpha - minAlpha) + minAlpha;
-                        Color colour = new Color(RANDOM.nextFloat(), RANDOM.nextFloat(), RANDOM.nextFloat(), alpha);
-                        return new Polygon(points, colour);
-                    } else {
-                        return new Polygon(polygon);
-                    }
-                })
-                .collect(Collectors.toList());
-        return Optional.of(new ImageIndividual(mutatedPolygons));
+                // colour
+                float alpha = RANDOM.nextFloat() * (maxAlpha - minAlpha) + minAlpha;
+                mutatedGenes.setColour(i, convertToARGB(
+                        toColourPart(alpha),
+                        toColourPart(RANDOM.nextFloat()),
+                        toColourPart(RANDOM.nextFloat()),
+                        toColourPart(RANDOM.nextFloat())
+                ));
+                changedGenes.set(i);
+            }
+        }
+        if (mutatedGenes == null) {
+            return Optional.of(individual);
+        }
+        return Optional.of(new ImageIndividual(mutatedGenes, individual, changedGenes));
     }
 }
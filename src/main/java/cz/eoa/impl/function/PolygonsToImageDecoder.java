@@ -1,51 +1,102 @@
 package cz.eoa.impl.function;
 
-import cz.eoa.impl.Polygon;
+import cz.eoa.impl.PolygonGenome;
+import cz.eoa.impl.PolygonRasterizer;
 import cz.eoa.templates.operations.DecodingStrategy;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.util.List;
+import java.awt.image.DataBufferByte;
 
 /**
+ * Images of type {@code TYPE_3BYTE_BGR} and {@code TYPE_4BYTE_ABGR} are rendered by {@link PolygonRasterizer}
+ * directly into their data buffer, other types fall back to Java2D.
+ * <p>
+ * Images returned by {@link #decode(PolygonGenome)} are always new and may be kept, e.g. by statistics or for
+ * the output. Evaluation should go through {@link #decodeReusable(PolygonGenome)}, which renders into an image
+ * owned by the calling thread.
+ *
  * @author Ondřej Kratochvíl
  */
-public class PolygonsToImageDecoder implements DecodingStrategy<List<Polygon>, BufferedImage> {
+public class PolygonsToImageDecoder implements DecodingStrategy<PolygonGenome, BufferedImage> {
 
     private final int width;
     private final int height;
     private final int type;
+    private final ThreadLocal<PolygonRasterizer> rasterizer;
+    private final ThreadLocal<BufferedImage> reusableImage;
 
     public PolygonsToImageDecoder(int width, int height, int type) {
         this.width = width;
         this.height = height;
         this.type = type;
+        this.rasterizer = ThreadLocal.withInitial(
+                () -> new PolygonRasterizer(width, height, type == BufferedImage.TYPE_4BYTE_ABGR)
+        );
+        this.reusableImage = ThreadLocal.withInitial(() -> new BufferedImage(width, height, type));
     }
 
     public PolygonsToImageDecoder(BufferedImage inputImage) {
-        this.width = inputImage.getWidth();
-        this.height = inputImage.getHeight();
-        this.type = inputImage.getType();
+        this(inputImage.getWidth(), inputImage.getHeight(), inputImage.getType());
     }
 
     @Override
-    public BufferedImage decode(List<Polygon> genes) {
+    public BufferedImage decode(PolygonGenome genes) {
         BufferedImage bufferedImage = new BufferedImage(width, height, type);
+        if (PolygonRasterizer.supportsType(type)) {
+            decode(genes, ((DataBufferByte) bufferedImage.getRaster().getDataBuffer()).getData());
+        } else {
+            decodeWithGraphics(genes, bufferedImage);
+        }
+        return bufferedImage;
+    }
+
+    /**
+     * Render given genes into the image of the calling thread, reused across calls, so that evaluation of
+     * the decoded image does not allocate.
+     *
+     * @param genes polygons to be rendered
+     * @return image valid only until the next call from the same thread, must not be retained
+     */
+    public BufferedImage decodeReusable(PolygonGenome genes) {
+        BufferedImage bufferedImage = reusableImage.get();
+        if (PolygonRasterizer.supportsType(type)) {
+            decode(genes, ((DataBufferByte) bufferedImage.getRaster().getDataBuffer()).getData());
+        } else {
+            Graphics2D graphics = bufferedImage.createGraphics();
+            graphics.setComposite(AlphaComposite.Clear);
+            graphics.fillRect(0, 0, width, height);
+            graphics.dispose();
+            decodeWithGraphics(genes, bufferedImage);
+        }
+        return bufferedImage;
+    }
+
+    /**
+     * Render given genes into a caller-provided framebuffer, which may be reused across calls.
+     *
+     * @param genes  polygons to be rendered
+     * @param target framebuffer with the layout of the data buffer of the decoded image type
+     */
+    public void decode(PolygonGenome genes, byte[] target) {
+        assert PolygonRasterizer.supportsType(type);
+        rasterizer.get().render(genes, target);
+    }
+
+    private void decodeWithGraphics(PolygonGenome genes, BufferedImage bufferedImage) {
         Graphics2D graphics = bufferedImage.createGraphics();
 
-        for (Polygon gene : genes) {
-            int[][] points = gene.getPoints();
-            int[] xPoints = new int[points.length];
-            int[] yPoints = new int[points.length];
-            for (int i = 0; i < points.length; ++i) {
-                xPoints[i] = points[i][0];
-                yPoints[i] = points[i][1];
+        int vertexCount = genes.getVertexCount();
+        int[] xPoints = new int[vertexCount];
+        int[] yPoints = new int[vertexCount];
+        for (int i = 0; i < genes.size(); ++i) {
+            for (int j = 0; j < vertexCount; ++j) {
+                xPoints[j] = genes.getX(i, j);
+                yPoints[j] = genes.getY(i, j);
             }
-            java.awt.Polygon polygon = new java.awt.Polygon(xPoints, yPoints, points.length);
-            graphics.setColor(gene.getColour());
-            graphics.fillPolygon(polygon);
+            graphics.setColor(new Color(genes.getColour(i), true));
+            graphics.fillPolygon(xPoints, yPoints, vertexCount);
         }
-
-        return bufferedImage;
+        graphics.dispose();
     }
 }
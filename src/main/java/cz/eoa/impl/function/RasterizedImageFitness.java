@@ -0,0 +1,116 @@
+package cz.eoa.impl.function;
+
+import cz.eoa.cycle.EvolutionMetrics;
+import cz.eoa.impl.PolygonGenome;
+import cz.eoa.impl.PolygonRasterizer;
+import cz.eoa.templates.Individual;
+import cz.eoa.templates.operations.DecodingFitnessAssessmentStrategy;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Render the polygons in bands of a few rows and score each band against the input image while it is still in cache.
+ * Gives the same fitness as {@link PolygonsToImageDecoder} followed by {@link ImageFitness}, but never allocates
+ * the whole image. Time spent rendering is reported as decoding to {@link EvolutionMetrics#reportDecoding(long)}.
+ *
+ * @author Ondřej Kratochvíl
+ */
+public class RasterizedImageFitness implements DecodingFitnessAssessmentStrategy<PolygonGenome, BufferedImage, Double> {
+
+    private static final int BAND_ROWS = 16;
+
+    private final ImageFitness imageFitness;
+    private final ThreadLocal<Workspace> workspace;
+
+    public RasterizedImageFitness(ImageFitness imageFitness) {
+        this.imageFitness = imageFitness;
+        this.workspace = ThreadLocal.withInitial(Workspace::new);
+    }
+
+    @Override
+    public Double computeFitnessForIndividual(Individual<PolygonGenome, BufferedImage> individual) {
+        return computeFitness(individual.getGenes());
+    }
+
+    public double computeFitness(PolygonGenome polygons) {
+        return (double) -computeRowsDiff(polygons, null, null);
+    }
+
+    /**
+     * Sum the squared differences of given rows only.
+     *
+     * @param polygons genes to be rendered
+     * @param rows     ascending rows to be compared, all rows if null
+     * @param weights  multipliers of the differences of the rows, all 1 if null
+     * @return weighted sum of squared differences
+     */
+    long computeRowsDiff(PolygonGenome polygons, int[] rows, int[] weights) {
+        Workspace workspace = this.workspace.get();
+        int[] firstRows = workspace.firstRows(polygons.size());
+        int[] lastRows = workspace.lastRows(polygons.size());
+        int[] bounds = workspace.bounds;
+        for (int i = 0; i < polygons.size(); ++i) {
+            PolygonRasterizer.pixelBounds(polygons, i, bounds);
+            firstRows[i] = bounds[1];
+            lastRows[i] = bounds[3];
+        }
+
+        int width = imageFitness.getWidth();
+        int rowLength = workspace.rowLength;
+        byte[] band = workspace.band;
+        long diff = 0;
+        long decodingNanos = 0;
+        int rowCount = rows == null ? imageFitness.getHeight() : rows.length;
+        for (int first = 0; first < rowCount; first += BAND_ROWS) {
+            int last = Math.min(rowCount, first + BAND_ROWS);
+            long renderingStart = System.nanoTime();
+            for (int r = first; r < last; ++r) {
+                int y = rows == null ? r : rows[r];
+                int rowOffset = (r - first) * rowLength;
+                Arrays.fill(band, rowOffset, rowOffset + rowLength, (byte) 0);
+                for (int i = 0; i < polygons.size(); ++i) {
+                    if (firstRows[i] <= y && y <= lastRows[i]) {
+                        workspace.rasterizer.fillRow(polygons, i, y, band, rowOffset, 0, width);
+                    }
+                }
+            }
+            decodingNanos += System.nanoTime() - renderingStart;
+            for (int r = first; r < last; ++r) {
+                int y = rows == null ? r : rows[r];
+                long rowDiff = imageFitness.computeRowDiff(y, band, (r - first) * rowLength, 0, width);
+                diff += weights == null ? rowDiff : rowDiff * weights[r];
+            }
+        }
+        EvolutionMetrics.reportDecoding(decodingNanos);
+        return diff;
+    }
+
+    /**
+     * Per-thread rasterizer and scratch buffers.
+     */
+    private class Workspace {
+        private final PolygonRasterizer rasterizer = new PolygonRasterizer(
+                imageFitness.getWidth(), imageFitness.getHeight(), imageFitness.hasAlpha()
+        );
+        private final int rowLength = imageFitness.getWidth() * rasterizer.getPixelLength();
+        private final byte[] band = new byte[BAND_ROWS * rowLength];
+        private final int[] bounds = new int[4];
+        private int[] firstRows = new int[0];
+        private int[] lastRows = new int[0];
+
+        private int[] firstRows(int size) {
+            if (firstRows.length < size) {
+                firstRows = new int[size];
+            }
+            return firstRows;
+        }
+
+        private int[] lastRows(int size) {
+            if (lastRows.length < size) {
+                lastRows = new int[size];
+            }
+            return lastRows;
+        }
+    }
+}
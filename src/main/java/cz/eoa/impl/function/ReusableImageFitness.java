@@ -0,0 +1,32 @@
+package cz.eoa.impl.function;
+
+import cz.eoa.impl.PolygonGenome;
+import cz.eoa.templates.Individual;
+import cz.eoa.templates.operations.DecodingFitnessAssessmentStrategy;
+import cz.eoa.templates.operations.FitnessAssessmentStrategy;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Assess the decoded image by any fitness function, decoding into the per-thread image of
+ * {@link PolygonsToImageDecoder#decodeReusable(PolygonGenome)} instead of allocating a new image per evaluation.
+ * The fitness function must not keep a reference to the image it is given.
+ *
+ * @author Ondřej Kratochvíl
+ */
+public class ReusableImageFitness<K extends Comparable<K>>
+        implements DecodingFitnessAssessmentStrategy<PolygonGenome, BufferedImage, K> {
+
+    private final PolygonsToImageDecoder decoder;
+    private final FitnessAssessmentStrategy<BufferedImage, K> fitnessFunction;
+
+    public ReusableImageFitness(PolygonsToImageDecoder decoder, FitnessAssessmentStrategy<BufferedImage, K> fitnessFunction) {
+        this.decoder = decoder;
+        this.fitnessFunction = fitnessFunction;
+    }
+
+    @Override
+    public K computeFitnessForIndividual(Individual<PolygonGenome, BufferedImage> individual) {
+        return fitnessFunction.computeFitnessForIndividual(decoder.decodeReusable(individual.getGenes()));
+    }
+}
@@ -3,31 +3,168 @@ package cz.eoa.impl.function;
 import cz.eoa.templates.IndividualWithAssignedFitness;
 import cz.eoa.templates.operations.SelectorStrategy;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
+ * Fitness proportionate selection. The weights of the population are turned into alias tables (Vose's method) once
+ * per epoch in {@link #prepare(List)}, so a selection takes constant time. A population which has not been prepared
+ * (e.g. in steady-state mode) gets the tables built for every selection. Every individual gets a small minimal
+ * weight, so that a population with a single individual of a non-zero weight still yields two distinct parents.
+ *
  * @author Ondřej Kratochvíl
  */
 public class RouletteSelection<V, T> implements SelectorStrategy<V, T, Double> {
 
-    private static final Random RANDOM = new Random();
+    public enum Scaling {
+        /**
+         * Weight is the fitness itself, which must not be negative. Supports only maximized fitness.
+         */
+        PROPORTIONAL,
+        /**
+         * Weight is the distance of the fitness from the worst one in the population, so the worst individual is
+         * selected only by the minimal weight. Supports negative fitness.
+         */
+        WINDOWED,
+        /**
+         * Weight is the rank of the individual, 1 for the worst one. Supports negative fitness and keeps the selection
+         * pressure independent of the spread of fitness.
+         */
+        RANK
+    }
+
+    //weight added to every individual, relative to the average weight, so that each one can be selected and there
+    //are always two distinct parents to select
+    private static final double MIN_WEIGHT = 0.01;
+
+    private final Scaling scaling;
+    private final boolean maximizeFitness;
+    private volatile AliasTable prepared = null;
+
+    public RouletteSelection() {
+        this(Scaling.PROPORTIONAL, true);
+    }
+
+    public RouletteSelection(Scaling scaling, boolean maximizeFitness) {
+        if (scaling == Scaling.PROPORTIONAL && !maximizeFitness) {
+            throw new IllegalArgumentException("Proportional scaling supports only maximized fitness");
+        }
+        this.scaling = scaling;
+        this.maximizeFitness = maximizeFitness;
+    }
+
+    @Override
+    public void prepare(List<IndividualWithAssignedFitness<V, T, Double>> population) {
+        prepared = new AliasTable(population, weights(population));
+    }
 
     @Override
     public IndividualWithAssignedFitness<V, T, Double> select(List<IndividualWithAssignedFitness<V, T, Double>> population) {
-        double totalFitness = 0;
-        for (IndividualWithAssignedFitness<V, T, Double> individual : population) {
-            totalFitness += individual.getFitness();
+        AliasTable table = prepared;
+        if (table == null || table.population != population) {
+            table = new AliasTable(population, weights(population));
         }
-        double random = RANDOM.nextFloat();
-        double current = 0;
-        for (IndividualWithAssignedFitness<V, T, Double> individual : population) {
-            if (current + (individual.getFitness() / totalFitness) < random) {
-                current += individual.getFitness() / totalFitness;
-            } else {
-                return individual;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int column = random.nextInt(table.probability.length);
+        return population.get(random.nextDouble() < table.probability[column] ? column : table.alias[column]);
+    }
+
+    private double[] weights(List<IndividualWithAssignedFitness<V, T, Double>> population) {
+        double[] fitness = new double[population.size()];
+        for (int i = 0; i < fitness.length; ++i) {
+            fitness[i] = population.get(i).getDoubleFitness();
+        }
+        switch (scaling) {
+            case PROPORTIONAL:
+                for (double value : fitness) {
+                    if (value < 0) {
+                        throw new IllegalStateException("Proportional selection of negative fitness " + value);
+                    }
+                }
+                return fitness;
+            case WINDOWED:
+                double worst = maximizeFitness ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+                for (double value : fitness) {
+                    worst = maximizeFitness ? Math.min(worst, value) : Math.max(worst, value);
+                }
+                for (int i = 0; i < fitness.length; ++i) {
+                    fitness[i] = Math.abs(fitness[i] - worst);
+                }
+                return fitness;
+            case RANK:
+                //indices sorted by fitness from the worst one
+                Integer[] indices = new Integer[fitness.length];
+                for (int i = 0; i < indices.length; ++i) {
+                    indices[i] = i;
+                }
+                Arrays.sort(indices, (first, second) -> maximizeFitness
+                        ? Double.compare(fitness[first], fitness[second])
+                        : Double.compare(fitness[second], fitness[first]));
+                double[] ranks = new double[fitness.length];
+                for (int rank = 0; rank < indices.length; ++rank) {
+                    ranks[indices[rank]] = rank + 1;
+                }
+                return ranks;
+            default:
+                throw new IllegalStateException("Unknown scaling " + scaling);
+        }
+    }
+
+    /**
+     * Columns of equal probability, each holding an individual with the given probability and its alias otherwise.
+     */
+    private static class AliasTable {
+        private final List<?> population;
+        private final double[] probability;
+        private final int[] alias;
+
+        private AliasTable(List<?> population, double[] weights) {
+            int size = weights.length;
+            this.population = population;
+            this.probability = new double[size];
+            this.alias = new int[size];
+            double sum = 0;
+            for (double weight : weights) {
+                sum += weight;
+            }
+            if (!(sum > 0) || Double.isInfinite(sum)) {
+                //no individual is preferred, select uniformly
+                Arrays.fill(probability, 1.0);
+                return;
+            }
+            double floor = sum / size * MIN_WEIGHT;
+            sum += floor * size;
+            double[] scaled = new double[size];
+            //indices of columns under and over the average, as stacks
+            int[] small = new int[size], large = new int[size];
+            int smallCount = 0, largeCount = 0;
+            for (int i = 0; i < size; ++i) {
+                scaled[i] = (weights[i] + floor) * size / sum;
+                if (scaled[i] < 1.0) {
+                    small[smallCount++] = i;
+                } else {
+                    large[largeCount++] = i;
+                }
+            }
+            while (smallCount > 0 && largeCount > 0) {
+                int less = small[--smallCount], more = large[--largeCount];
+                probability[less] = scaled[less];
+                alias[less] = more;
+                scaled[more] = scaled[more] + scaled[less] - 1.0;
+                if (scaled[more] < 1.0) {
+                    small[smallCount++] = more;
+                } else {
+                    large[largeCount++] = more;
+                }
+            }
+            //the rest is 1 up to rounding errors
+            while (largeCount > 0) {
+                probability[large[--largeCount]] = 1.0;
+            }
+            while (smallCount > 0) {
+                probability[small[--smallCount]] = 1.0;
             }
         }
-        return null;
     }
 }
@@ -0,0 +1,60 @@
+package cz.eoa.impl.function;
+
+import cz.eoa.impl.PolygonGenome;
+import cz.eoa.templates.Individual;
+import cz.eoa.templates.operations.DecodingFitnessAssessmentStrategy;
+import cz.eoa.templates.operations.EstimatingFitnessAssessmentStrategy;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Estimate the fitness from a stratified sample of rows: the image is split into horizontal strips of equal height
+ * and a single random row of every strip is rendered and scored, weighted by the height of its strip. Rows are
+ * chosen once, so all individuals are compared on the same pixels and the ranking noise stays bounded by how well
+ * the rows represent their strips. Exact fitness is assessed by another strategy.
+ *
+ * @author Ondřej Kratochvíl
+ */
+public class SampledImageFitness implements EstimatingFitnessAssessmentStrategy<PolygonGenome, BufferedImage, Double> {
+
+    private final RasterizedImageFitness rasterizedFitness;
+    private final DecodingFitnessAssessmentStrategy<PolygonGenome, BufferedImage, Double> exactFitness;
+    private final int[] rows;
+    private final int[] weights;
+
+    /**
+     * @param imageFitness target image
+     * @param exactFitness exact assessment, e.g. {@link IncrementalImageFitness}
+     * @param sampleRatio  ratio of the rows to be scored, in (0, 1]
+     * @param seed         seed of the choice of the rows
+     */
+    public SampledImageFitness(ImageFitness imageFitness,
+                               DecodingFitnessAssessmentStrategy<PolygonGenome, BufferedImage, Double> exactFitness,
+                               double sampleRatio, long seed) {
+        assert sampleRatio > 0 && sampleRatio <= 1;
+        this.rasterizedFitness = new RasterizedImageFitness(imageFitness);
+        this.exactFitness = exactFitness;
+        int height = imageFitness.getHeight();
+        int strips = Math.max(1, (int) Math.round(height * sampleRatio));
+        this.rows = new int[strips];
+        this.weights = new int[strips];
+        Random random = new Random(seed);
+        for (int i = 0; i < strips; ++i) {
+            int from = i * height / strips;
+            int to = (i + 1) * height / strips;
+            rows[i] = from + random.nextInt(to - from);
+            weights[i] = to - from;
+        }
+    }
+
+    @Override
+    public Double computeFitnessForIndividual(Individual<PolygonGenome, BufferedImage> individual) {
+        return (double) -rasterizedFitness.computeRowsDiff(individual.getGenes(), rows, weights);
+    }
+
+    @Override
+    public Double computeExactFitnessForIndividual(Individual<PolygonGenome, BufferedImage> individual) {
+        return exactFitness.computeFitnessForIndividual(individual);
+    }
+}
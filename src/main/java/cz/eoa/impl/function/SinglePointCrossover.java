@@ -1,11 +1,11 @@
 package cz.eoa.impl.function;
 
-import cz.eoa.impl.Polygon;
+import cz.eoa.impl.ImageIndividual;
+import cz.eoa.impl.PolygonGenome;
 import cz.eoa.templates.Individual;
 import cz.eoa.templates.operations.CrossoverStrategy;
 
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -13,7 +13,7 @@ import java.util.stream.Stream;
 /**
  * @author Ondřej Kratochvíl
  */
-public class SinglePointCrossover implements CrossoverStrategy<List<Polygon>, BufferedImage> {
+public class SinglePointCrossover implements CrossoverStrategy<PolygonGenome, BufferedImage> {
 
     private final float crossoverPoint;
 
@@ -23,36 +23,27 @@ public class SinglePointCrossover implements CrossoverStrategy<List<Polygon>, Bu
     }
 
     @Override
-    public List<Individual<List<Polygon>, BufferedImage>> crossover(Individual<List<Polygon>, BufferedImage> firstParent, Individual<List<Polygon>, BufferedImage> secondParent) {
-        // deep copy
-        List<Polygon> firstParentGenes = firstParent.getGenes().parallelStream()    // TODO not parallel?
-                .map(Polygon::new)
-                .collect(Collectors.toList());
-        List<Polygon> secondParentGenes = secondParent.getGenes().parallelStream()  // TODO not parallel?
-                .map(Polygon::new)
-                .collect(Collectors.toList());
-        List<Polygon> childGenes1 = new ArrayList<>(firstParent.getGenes().size());
-        List<Polygon> childGenes2 = new ArrayList<>(secondParent.getGenes().size());
+    public List<Individual<PolygonGenome, BufferedImage>> crossover(Individual<PolygonGenome, BufferedImage> firstParent, Individual<PolygonGenome, BufferedImage> secondParent) {
+        PolygonGenome firstParentGenes = firstParent.getGenes();
+        PolygonGenome secondParentGenes = secondParent.getGenes();
         int crossoverIndex = (int) (firstParentGenes.size() * crossoverPoint);
-        for (int i = 0; i < firstParent.getGenes().size(); ++i) {
-            if (i < crossoverIndex) {
-                childGenes1.add(new Polygon(firstParentGenes.get(i)));
-                childGenes2.add(new Polygon(secondParentGenes.get(i)));
-            } else {
-                childGenes1.add(new Polygon(secondParentGenes.get(i)));
-                childGenes2.add(new Polygon(firstParentGenes.get(i)));
-            }
-        }
+        PolygonGenome childGenes1 = new PolygonGenome(firstParentGenes);
+        PolygonGenome childGenes2 = new PolygonGenome(secondParentGenes);
+        childGenes1.copyGenes(secondParentGenes, crossoverIndex, secondParentGenes.size());
+        childGenes2.copyGenes(firstParentGenes, crossoverIndex, firstParentGenes.size());
 //        checkGenes(firstParentGenes, secondParentGenes, childGenes1, childGenes2);
 
-        return Stream.of(
-                new Individual<List<Polygon>, BufferedImage>(childGenes1),
-                new Individual<List<Polygon>, BufferedImage>(childGenes2))
+        // children remember the parent they share the position of the genes with
+        return Stream.<Individual<PolygonGenome, BufferedImage>>of(
+                new ImageIndividual(childGenes1, firstParent,
+                        ImageIndividual.findChangedGenes(firstParentGenes, childGenes1)),
+                new ImageIndividual(childGenes2, secondParent,
+                        ImageIndividual.findChangedGenes(secondParentGenes, childGenes2)))
                 .collect(Collectors.toList());
     }
 
-    private void checkGenes(List<Polygon> firstParentGenes, List<Polygon> secondParentGenes,
-                            List<Polygon> childGenes1, List<Polygon> childGenes2) {
+    private void checkGenes(PolygonGenome firstParentGenes, PolygonGenome secondParentGenes,
+                            PolygonGenome childGenes1, PolygonGenome childGenes2) {
         int size = childGenes1.size();
         assert size == childGenes2.size()
                 && childGenes2.size() == firstParentGenes.size()
@@ -60,11 +51,11 @@ public class SinglePointCrossover implements CrossoverStrategy<List<Polygon>, Bu
         int crossoverIndex = (int) (firstParentGenes.size() * crossoverPoint);
         for (int i = 0; i < firstParentGenes.size(); ++i) {
             if (i < crossoverIndex) {
-                assert childGenes1.get(i).equals(firstParentGenes.get(i));
-                assert childGenes2.get(i).equals(secondParentGenes.get(i));
+                assert childGenes1.geneEquals(firstParentGenes, i);
+                assert childGenes2.geneEquals(secondParentGenes, i);
             } else {
-                assert childGenes1.get(i).equals(secondParentGenes.get(i));
-                assert childGenes2.get(i).equals(firstParentGenes.get(i));
+                assert childGenes1.geneEquals(secondParentGenes, i);
+                assert childGenes2.geneEquals(firstParentGenes, i);
             }
         }
     }
@@ -25,7 +25,7 @@ public class TournamentSelection<V, T, K extends Comparable<K>> implements Selec
         // Try and check another n randomly chosen individuals.
         for (int i = 0; i < tournamentSize; i++) {
             int candidate = RANDOM.nextInt(population.size());
-            if (population.get(candidate).getFitness().compareTo(population.get(winnerIndex).getFitness()) > 0) {
+            if (population.get(candidate).compareTo(population.get(winnerIndex)) > 0) {
                 winnerIndex = candidate;
             }
         }
@@ -1,11 +1,12 @@
 package cz.eoa.impl.function;
 
-import cz.eoa.impl.Polygon;
+import cz.eoa.impl.ImageIndividual;
+import cz.eoa.impl.PolygonGenome;
 import cz.eoa.templates.Individual;
 import cz.eoa.templates.operations.CrossoverStrategy;
 
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
@@ -14,7 +15,7 @@ import java.util.stream.Stream;
 /**
  * @author Ondřej Kratochvíl
  */
-public class UniformCrossover implements CrossoverStrategy<List<Polygon>, BufferedImage> {
+public class UniformCrossover implements CrossoverStrategy<PolygonGenome, BufferedImage> {
 
     private static final ThreadLocalRandom RANDOM = ThreadLocalRandom.current();
     private final double parentProbability;
@@ -24,39 +25,39 @@ public class UniformCrossover implements CrossoverStrategy<List<Polygon>, Buffer
     }
 
     @Override
-    public List<Individual<List<Polygon>, BufferedImage>> crossover(Individual<List<Polygon>, BufferedImage> firstParent, Individual<List<Polygon>, BufferedImage> secondParent) {
-        List<Polygon> firstParentGenes = firstParent.getGenes();
-        List<Polygon> secondParentGenes = secondParent.getGenes();
-        List<Polygon> childGenes1 = new ArrayList<>(firstParentGenes.size());
-        List<Polygon> childGenes2 = new ArrayList<>(secondParentGenes.size());
+    public List<Individual<PolygonGenome, BufferedImage>> crossover(Individual<PolygonGenome, BufferedImage> firstParent, Individual<PolygonGenome, BufferedImage> secondParent) {
+        PolygonGenome firstParentGenes = firstParent.getGenes();
+        PolygonGenome secondParentGenes = secondParent.getGenes();
+        PolygonGenome childGenes1 = new PolygonGenome(firstParentGenes);
+        PolygonGenome childGenes2 = new PolygonGenome(secondParentGenes);
+        BitSet swappedGenes = new BitSet(firstParentGenes.size());
         for (int i = 0; i < firstParentGenes.size(); ++i) {
-            if (RANDOM.nextDouble() < parentProbability) {
-                childGenes1.add(new Polygon(firstParentGenes.get(i)));
-                childGenes2.add(new Polygon(secondParentGenes.get(i)));
-            } else {
-                childGenes1.add(new Polygon(secondParentGenes.get(i)));
-                childGenes2.add(new Polygon(firstParentGenes.get(i)));
+            if (RANDOM.nextDouble() >= parentProbability && !firstParentGenes.geneEquals(secondParentGenes, i)) {
+                childGenes1.copyGene(secondParentGenes, i);
+                childGenes2.copyGene(firstParentGenes, i);
+                swappedGenes.set(i);
             }
         }
 //        checkGenes(firstParentGenes, secondParentGenes, childGenes1, childGenes2);
 
-        return Stream.of(
-                new Individual<List<Polygon>, BufferedImage>(childGenes1),
-                new Individual<List<Polygon>, BufferedImage>(childGenes2))
+        // children remember the parent they share the position of the genes with
+        return Stream.<Individual<PolygonGenome, BufferedImage>>of(
+                new ImageIndividual(childGenes1, firstParent, swappedGenes),
+                new ImageIndividual(childGenes2, secondParent, swappedGenes))
                 .collect(Collectors.toList());
     }
 
-    private void checkGenes(List<Polygon> firstParentGenes, List<Polygon> secondParentGenes,
-                            List<Polygon> childGenes1, List<Polygon> childGenes2) {
+    private void checkGenes(PolygonGenome firstParentGenes, PolygonGenome secondParentGenes,
+                            PolygonGenome childGenes1, PolygonGenome childGenes2) {
         int size = childGenes1.size();
         assert size == childGenes2.size()
                 && childGenes2.size() == firstParentGenes.size()
                 && firstParentGenes.size() == secondParentGenes.size();
         for (int i = 0; i < firstParentGenes.size(); ++i) {
-            assert childGenes1.get(i).equals(firstParentGenes.get(i))
-                    || childGenes1.get(i).equals(secondParentGenes.get(i));
-            assert childGenes2.get(i).equals(firstParentGenes.get(i))
-                    || childGenes2.get(i).equals(secondParentGenes.get(i));
+            assert childGenes1.geneEquals(firstParentGenes, i)
+                    || childGenes1.geneEquals(secondParentGenes, i);
+            assert childGenes2.geneEquals(firstParentGenes, i)
+                    || childGenes2.geneEquals(secondParentGenes, i);
         }
     }
 }
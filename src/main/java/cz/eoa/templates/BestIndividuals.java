@@ -0,0 +1,115 @@
+package cz.eoa.templates;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Partial selection of the best individuals of a population, in expected linear time instead of sorting it
+ * (quickselect with a three-way partition, so that many individuals with equal fitness do not degrade it).
+ * Individuals with {@link Double} fitness are compared by primitive keys.
+ */
+public final class BestIndividuals {
+
+    private BestIndividuals() {
+    }
+
+    /**
+     * @return the best {@code count} individuals, or the whole population if it is smaller, in no particular order
+     */
+    public static <V, T, K extends Comparable<K>> List<IndividualWithAssignedFitness<V, T, K>> select(
+            List<? extends IndividualWithAssignedFitness<V, T, K>> population, int count, boolean maximizeFitness) {
+        int[] indices = selectIndices(population, count, maximizeFitness);
+        List<IndividualWithAssignedFitness<V, T, K>> best = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            best.add(population.get(index));
+        }
+        return best;
+    }
+
+    /**
+     * @return indices of the best {@code count} individuals, or of the whole population if it is smaller, in no
+     * particular order
+     */
+    public static <V, T, K extends Comparable<K>> int[] selectIndices(
+            List<? extends IndividualWithAssignedFitness<V, T, K>> population, int count, boolean maximizeFitness) {
+        int size = population.size();
+        int[] indices = new int[size];
+        for (int i = 0; i < size; ++i) {
+            indices[i] = i;
+        }
+        int selected = Math.max(0, Math.min(count, size));
+        if (selected == 0 || selected == size) {
+            return selected == 0 ? new int[0] : indices;
+        }
+        double[] keys = doubleKeys(population, maximizeFitness);
+        if (keys != null) {
+            selectSmallest(indices, selected, (first, second) -> Double.compare(keys[first], keys[second]));
+        } else if (maximizeFitness) {
+            selectSmallest(indices, selected, (first, second) -> population.get(second).compareTo(population.get(first)));
+        } else {
+            selectSmallest(indices, selected, (first, second) -> population.get(first).compareTo(population.get(second)));
+        }
+        int[] best = new int[selected];
+        System.arraycopy(indices, 0, best, 0, selected);
+        return best;
+    }
+
+    /**
+     * @return fitness ordered from the best one, or null if not all individuals have a primitive fitness
+     */
+    private static double[] doubleKeys(List<? extends IndividualWithAssignedFitness<?, ?, ?>> population,
+                                       boolean maximizeFitness) {
+        double[] keys = new double[population.size()];
+        for (int i = 0; i < keys.length; ++i) {
+            IndividualWithAssignedFitness<?, ?, ?> individual = population.get(i);
+            if (!individual.hasDoubleFitness()) {
+                return null;
+            }
+            double fitness = individual.getDoubleFitness();
+            keys[i] = maximizeFitness ? -fitness : fitness;
+        }
+        return keys;
+    }
+
+    /**
+     * Reorder the indices, so that the first {@code count} of them are the smallest ones by the order.
+     */
+    private static void selectSmallest(int[] indices, int count, IndexOrder order) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = 0, to = indices.length;
+        while (to - from > 1) {
+            int pivot = indices[from + random.nextInt(to - from)];
+            //[from, less) is smaller than the pivot, [less, greater) equal and [greater, to) greater
+            int less = from, current = from, greater = to;
+            while (current < greater) {
+                int comparison = order.compare(indices[current], pivot);
+                if (comparison < 0) {
+                    swap(indices, less++, current++);
+                } else if (comparison > 0) {
+                    swap(indices, current, --greater);
+                } else {
+                    ++current;
+                }
+            }
+            if (count < less) {
+                to = less;
+            } else if (count > greater) {
+                from = greater;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static void swap(int[] indices, int first, int second) {
+        int swapped = indices[first];
+        indices[first] = indices[second];
+        indices[second] = swapped;
+    }
+
+    @FunctionalInterface
+    private interface IndexOrder {
+        int compare(int first, int second);
+    }
+}
@@ -1,7 +1,6 @@
 package cz.eoa.templates;
 
 import cz.eoa.templates.operations.IndividualFitnessUpdater;
-import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import org.jetbrains.annotations.NotNull;
@@ -12,12 +11,36 @@ import java.util.List;
 import java.util.stream.Collector;
 import java.util.stream.IntStream;
 
-@AllArgsConstructor
 @EqualsAndHashCode(of = "individual")
-@Getter
 public class IndividualWithAssignedFitness<V, T, K extends Comparable<K>> implements Comparable<IndividualWithAssignedFitness<V, T, K>> {
+    @Getter
     private final Individual<V, T> individual;
+    @Getter
     private final K fitness;
+    //primitive copy of a Double fitness, so that such individuals are compared without unboxing
+    private final boolean hasDoubleFitness;
+    private final double doubleFitness;
+
+    public IndividualWithAssignedFitness(Individual<V, T> individual, K fitness) {
+        this.individual = individual;
+        this.fitness = fitness;
+        this.hasDoubleFitness = fitness instanceof Double;
+        this.doubleFitness = hasDoubleFitness ? (Double) fitness : Double.NaN;
+    }
+
+    /**
+     * @return true if the fitness is a {@link Double}, available as a primitive by {@link #getDoubleFitness()}
+     */
+    public boolean hasDoubleFitness() {
+        return hasDoubleFitness;
+    }
+
+    /**
+     * @return fitness as a primitive, NaN unless it is a {@link Double}
+     */
+    public double getDoubleFitness() {
+        return doubleFitness;
+    }
 
     public IndividualWithTweakedFitness<V, T, K> updateFitness(int individualsIndex, List<IndividualWithAssignedFitness<V, T, K>> population, IndividualFitnessUpdater<V, T, K> fitnessUpdater) {
         return new IndividualWithTweakedFitness<>(this, fitnessUpdater.computeNewFitness(this, IntStream.range(0, population.size())
@@ -33,6 +56,9 @@ public class IndividualWithAssignedFitness<V, T, K extends Comparable<K>> implem
 
     @Override
     public int compareTo(@NotNull IndividualWithAssignedFitness<V, T, K> other) {
+        if (hasDoubleFitness && other.hasDoubleFitness) {
+            return Double.compare(doubleFitness, other.doubleFitness);
+        }
         return this.getFitness().compareTo(other.getFitness());
     }
 
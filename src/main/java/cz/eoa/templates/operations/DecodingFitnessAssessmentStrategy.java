@@ -0,0 +1,10 @@
+package cz.eoa.templates.operations;
+
+import cz.eoa.templates.Individual;
+
+/**
+ * Decode and assess an individual in a single step, without materializing the decoded solution.
+ */
+public interface DecodingFitnessAssessmentStrategy<V, T, K extends Comparable<K>> {
+    K computeFitnessForIndividual(Individual<V, T> individual);
+}
@@ -0,0 +1,14 @@
+package cz.eoa.templates.operations;
+
+import cz.eoa.templates.Individual;
+
+/**
+ * Decoding fitness assessment estimating the fitness cheaply, e.g. from a sample of the solution, which can also
+ * assess it exactly. Estimates are used for most of the population, only the best individuals of every generation
+ * are assessed exactly.
+ */
+public interface EstimatingFitnessAssessmentStrategy<V, T, K extends Comparable<K>>
+        extends DecodingFitnessAssessmentStrategy<V, T, K> {
+
+    K computeExactFitnessForIndividual(Individual<V, T> individual);
+}
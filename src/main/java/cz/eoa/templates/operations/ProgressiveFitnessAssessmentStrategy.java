@@ -0,0 +1,31 @@
+package cz.eoa.templates.operations;
+
+/**
+ * Decoding fitness assessment refining its precision during the run, e.g. by scoring at a finer resolution.
+ * Fitness assessed before and after a refinement is not comparable, the population is therefore re-evaluated
+ * whenever {@link #refine(int, Comparable)} returns true.
+ */
+public interface ProgressiveFitnessAssessmentStrategy<V, T, K extends Comparable<K>>
+        extends DecodingFitnessAssessmentStrategy<V, T, K> {
+
+    /**
+     * Called after every epoch, never concurrently with assessment of the individuals.
+     *
+     * @param epoch       closed epoch
+     * @param bestFitness best fitness of the epoch
+     * @return true if the assessment has been refined
+     */
+    boolean refine(int epoch, K bestFitness);
+
+    /**
+     * @return number of refinements done so far, stored in checkpoints
+     */
+    int getRefinements();
+
+    /**
+     * Continue with the precision reached by an interrupted run, called before its checkpoint is resumed.
+     *
+     * @param refinements number of refinements returned by {@link #getRefinements()} of the interrupted run
+     */
+    void restoreRefinements(int refinements);
+}
@@ -6,4 +6,11 @@ import java.util.List;
 
 public interface SelectorStrategy<V, T, K extends Comparable<K>> {
     IndividualWithAssignedFitness<V, T, K> select(List<IndividualWithAssignedFitness<V, T, K>> population);
+
+    /**
+     * Called by the generational run once per epoch, before parents are selected from the population, which does not
+     * change until the next call. Selections may then be served from precomputed data, possibly from several threads.
+     */
+    default void prepare(List<IndividualWithAssignedFitness<V, T, K>> population) {
+    }
 }
@@ -0,0 +1,106 @@
+package cz.eoa.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The rasterizer must render the same pixels as {@link Graphics2D#fillPolygon(int[], int[], int)} up to the tolerance
+ * stated in its documentation, for both byte layouts.
+ *
+ * @author Ondřej Kratochvíl
+ */
+class PolygonRasterizerTest {
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+    private static final int[] TYPES = {BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR};
+
+    @Test
+    void coloursEqualJava2dOnRectangles() {
+        //axis aligned rectangles of integer vertices are covered the same way, only the colour arithmetic is tested
+        Random random = new Random(0);
+        for (int type : TYPES) {
+            for (int layers : new int[]{1, 2, 5, 50}) {
+                for (int scene = 0; scene < 50; ++scene) {
+                    PolygonGenome genes = new PolygonGenome(layers, 4);
+                    for (int i = 0; i < layers; ++i) {
+                        int x0 = random.nextInt(WIDTH), x1 = random.nextInt(WIDTH);
+                        int y0 = random.nextInt(HEIGHT), y1 = random.nextInt(HEIGHT);
+                        genes.setColour(i, random.nextInt());
+                        genes.setVertex(i, 0, x0, y0);
+                        genes.setVertex(i, 1, x1, y0);
+                        genes.setVertex(i, 2, x1, y1);
+                        genes.setVertex(i, 3, x0, y1);
+                    }
+                    assertArrayEquals(renderByJava2d(genes, type), render(genes, type),
+                            "type " + type + ", " + layers + " layers, scene " + scene);
+                }
+            }
+        }
+    }
+
+    @Test
+    void coverageDiffersFromJava2dOnlyInFewEdgePixels() {
+        Random random = new Random(1);
+        for (int type : TYPES) {
+            assertTrue(differingPixelRatio(random, type, 1, 2000) < 0.0003, "single polygons of type " + type);
+            assertTrue(differingPixelRatio(random, type, 50, 200) < 0.01, "scenes of type " + type);
+        }
+    }
+
+    private static double differingPixelRatio(Random random, int type, int polygonCount, int scenes) {
+        int pixelLength = type == BufferedImage.TYPE_4BYTE_ABGR ? 4 : 3;
+        long differing = 0;
+        for (int scene = 0; scene < scenes; ++scene) {
+            int vertexCount = 3 + random.nextInt(4);
+            PolygonGenome genes = new PolygonGenome(polygonCount, vertexCount);
+            for (int i = 0; i < polygonCount; ++i) {
+                genes.setColour(i, random.nextInt());
+                for (int j = 0; j < vertexCount; ++j) {
+                    genes.setVertex(i, j, random.nextInt(WIDTH), random.nextInt(HEIGHT));
+                }
+            }
+            byte[] expected = renderByJava2d(genes, type);
+            byte[] actual = render(genes, type);
+            for (int pixel = 0; pixel < expected.length; pixel += pixelLength) {
+                for (int channel = pixel; channel < pixel + pixelLength; ++channel) {
+                    if (expected[channel] != actual[channel]) {
+                        ++differing;
+                        break;
+                    }
+                }
+            }
+        }
+        return (double) differing / ((long) scenes * WIDTH * HEIGHT);
+    }
+
+    private static byte[] render(PolygonGenome genes, int type) {
+        PolygonRasterizer rasterizer = new PolygonRasterizer(WIDTH, HEIGHT, type == BufferedImage.TYPE_4BYTE_ABGR);
+        byte[] target = new byte[WIDTH * HEIGHT * rasterizer.getPixelLength()];
+        rasterizer.render(genes, target);
+        return target;
+    }
+
+    private static byte[] renderByJava2d(PolygonGenome genes, int type) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+        Graphics2D graphics = image.createGraphics();
+        int[] xs = new int[genes.getVertexCount()];
+        int[] ys = new int[genes.getVertexCount()];
+        for (int i = 0; i < genes.size(); ++i) {
+            for (int j = 0; j < genes.getVertexCount(); ++j) {
+                xs[j] = genes.getX(i, j);
+                ys[j] = genes.getY(i, j);
+            }
+            graphics.setColor(new Color(genes.getColour(i), true));
+            graphics.fillPolygon(xs, ys, xs.length);
+        }
+        graphics.dispose();
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+}
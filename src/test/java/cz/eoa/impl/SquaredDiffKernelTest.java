@@ -0,0 +1,97 @@
+package cz.eoa.impl;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * The vector kernel must give bit-for-bit the same sums as the scalar one. Runs only where the vector kernel is
+ * available, i.e. built and run on JDK 17+ with the {@code vector} profile.
+ *
+ * @author Ondřej Kratochvíl
+ */
+class SquaredDiffKernelTest {
+    private static final int[] LENGTHS = {0, 1, 2, 3, 7, 8, 15, 16, 17, 31, 32, 33, 63, 64, 65, 127, 128, 129, 1000};
+    private static final int[] OFFSETS = {0, 1, 3, 5, 13};
+
+    private static SquaredDiffKernel vector;
+
+    @BeforeAll
+    static void loadVectorKernel() {
+        try {
+            vector = (SquaredDiffKernel) Class.forName(SquaredDiffKernel.VECTOR_KERNEL)
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            vector = null;
+        }
+    }
+
+    @Test
+    void scalarSumsSquaredDifferencesOfUnsignedBytes() {
+        byte[] first = {0, (byte) 255, (byte) 128, 10};
+        byte[] second = {(byte) 255, 0, 127, 10};
+        assertEquals(255 * 255 * 2 + 1, SquaredDiffKernel.scalar().sum(first, 0, second, 0, 4));
+        assertEquals(1, SquaredDiffKernel.scalar().sum(first, 2, second, 2, 2));
+    }
+
+    @Test
+    void vectorEqualsScalarOnRandomBytes() {
+        Random random = new Random(0);
+        byte[] first = new byte[4096];
+        byte[] second = new byte[first.length];
+        random.nextBytes(first);
+        random.nextBytes(second);
+        assertSameSums(first, second);
+    }
+
+    @Test
+    void vectorEqualsScalarOnExtremeBytes() {
+        byte[] first = new byte[4096];
+        byte[] second = new byte[first.length];
+        Arrays.fill(first, (byte) 255);
+        assertSameSums(first, second);
+        Random random = new Random(1);
+        for (int i = 0; i < first.length; ++i) {
+            first[i] = (byte) (250 + random.nextInt(6));
+            second[i] = (byte) random.nextInt(6);
+        }
+        assertSameSums(first, second);
+    }
+
+    @Test
+    void vectorEqualsScalarOnWholeImage() {
+        //long enough to flush the int accumulator several times
+        byte[] first = new byte[4 * 1920 * 1080];
+        byte[] second = new byte[first.length];
+        Arrays.fill(first, (byte) 255);
+        assumeVector();
+        assertEquals(SquaredDiffKernel.scalar().sum(first, 0, second, 0, first.length),
+                vector.sum(first, 0, second, 0, first.length));
+        assertEquals(SquaredDiffKernel.scalar().sum(first, 7, second, 3, first.length - 9),
+                vector.sum(first, 7, second, 3, first.length - 9));
+    }
+
+    private static void assertSameSums(byte[] first, byte[] second) {
+        assumeVector();
+        for (int length : LENGTHS) {
+            for (int firstOffset : OFFSETS) {
+                for (int secondOffset : OFFSETS) {
+                    assertEquals(SquaredDiffKernel.scalar().sum(first, firstOffset, second, secondOffset, length),
+                            vector.sum(first, firstOffset, second, secondOffset, length),
+                            "length " + length + ", offsets " + firstOffset + " and " + secondOffset);
+                }
+            }
+        }
+        int tail = first.length - 13;
+        assertEquals(SquaredDiffKernel.scalar().sum(first, 13, second, 0, tail), vector.sum(first, 13, second, 0, tail));
+    }
+
+    private static void assumeVector() {
+        assumeTrue(vector != null, "vector kernel is not available");
+    }
+}
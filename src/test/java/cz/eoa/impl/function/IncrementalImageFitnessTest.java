@@ -0,0 +1,103 @@
+package cz.eoa.impl.function;
+
+import cz.eoa.impl.PolygonGenome;
+import cz.eoa.templates.Individual;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Incremental re-scoring of mutated individuals must give exactly the fitness of a full evaluation, for both byte
+ * layouts and tiles not dividing the image.
+ *
+ * @author Ondřej Kratochvíl
+ */
+class IncrementalImageFitnessTest {
+    private static final int WIDTH = 80;
+    private static final int HEIGHT = 60;
+    private static final int[] TYPES = {BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR};
+    private static final int POPULATION_SIZE = 10;
+    private static final int GENERATIONS = 100;
+
+    @Test
+    void equalsFullEvaluationAfterRandomMutations() {
+        for (int type : TYPES) {
+            for (int tileSize : new int[]{7, 16, 32}) {
+                BufferedImage image = randomImage(type, new Random(tileSize));
+                RasterizedImageFitness full = new RasterizedImageFitness(new ImageFitness(image));
+                IncrementalImageFitness incremental = new IncrementalImageFitness(new ImageFitness(image), tileSize);
+                PolygonDeltaMutation deltaMutation = new PolygonDeltaMutation(0.1, 0.1, 0.1, image);
+                PolygonReplacementMutation replacementMutation = new PolygonReplacementMutation(0.1, 0.125f, 0.25f, image);
+                PolygonPopulationInitialization initialization = new PolygonPopulationInitialization(
+                        image, 30, 5, 0.125f, 0.25f);
+                Random random = new Random(type * 31 + tileSize);
+
+                List<Individual<PolygonGenome, BufferedImage>> population = new ArrayList<>();
+                for (int i = 0; i < POPULATION_SIZE; ++i) {
+                    population.add(initialization.initialize());
+                    assertSameFitness(full, incremental, population.get(i));
+                }
+                for (int generation = 0; generation < GENERATIONS; ++generation) {
+                    int index = random.nextInt(POPULATION_SIZE);
+                    Individual<PolygonGenome, BufferedImage> child = population.get(index);
+                    //several mutations before the evaluation exercise the lineage collapsed to an evaluated origin
+                    for (int mutations = 1 + random.nextInt(3); mutations > 0; --mutations) {
+                        child = (random.nextBoolean() ? deltaMutation : replacementMutation).mutation(child)
+                                .orElseThrow(IllegalStateException::new);
+                    }
+                    assertSameFitness(full, incremental, child);
+                    population.set(index, child);
+                }
+            }
+        }
+    }
+
+    @Test
+    void ignoresTileDiffsOfAnotherAssessment() {
+        for (int type : TYPES) {
+            BufferedImage image = randomImage(type, new Random(1));
+            BufferedImage otherImage = randomImage(type, new Random(2));
+            RasterizedImageFitness full = new RasterizedImageFitness(new ImageFitness(image));
+            IncrementalImageFitness incremental = new IncrementalImageFitness(new ImageFitness(image), 16);
+            PolygonDeltaMutation deltaMutation = new PolygonDeltaMutation(0.1, 0.1, 0.1, image);
+            PolygonPopulationInitialization initialization = new PolygonPopulationInitialization(
+                    image, 30, 5, 0.125f, 0.25f);
+            //e.g. an immigrant from an island with other tiles or another target image
+            List<IncrementalImageFitness> others = new ArrayList<>();
+            others.add(new IncrementalImageFitness(new ImageFitness(image), 7));
+            others.add(new IncrementalImageFitness(new ImageFitness(otherImage), 16));
+            for (IncrementalImageFitness other : others) {
+                for (int i = 0; i < POPULATION_SIZE; ++i) {
+                    Individual<PolygonGenome, BufferedImage> parent = initialization.initialize();
+                    other.computeFitnessForIndividual(parent);
+                    Individual<PolygonGenome, BufferedImage> child = deltaMutation.mutation(parent)
+                            .orElseThrow(IllegalStateException::new);
+                    other.computeFitnessForIndividual(child);
+                    assertSameFitness(full, incremental, parent);
+                    assertSameFitness(full, incremental, deltaMutation.mutation(child)
+                            .orElseThrow(IllegalStateException::new));
+                }
+            }
+        }
+    }
+
+    private static void assertSameFitness(RasterizedImageFitness full, IncrementalImageFitness incremental,
+                                          Individual<PolygonGenome, BufferedImage> individual) {
+        assertEquals(full.computeFitnessForIndividual(individual), incremental.computeFitnessForIndividual(individual));
+    }
+
+    private static BufferedImage randomImage(int type, Random random) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+        for (int y = 0; y < HEIGHT; ++y) {
+            for (int x = 0; x < WIDTH; ++x) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+}